@@ -1,9 +1,7 @@
 package com.xiaoguang.selecttextview;
 
 import android.content.Context;
-import android.content.res.Resources;
 import android.graphics.drawable.BitmapDrawable;
-import android.util.Pair;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -17,28 +15,28 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.xiaoguang.selecttext.SelectTextHelper;
+import com.xiaoguang.selecttext.SelectTextMenuItem;
+import com.xiaoguang.selecttext.SelectTextMetrics;
 import com.xiaoguang.selecttext.SelectTextPopAdapter;
 
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
-
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 聊天长按弹出
  * hxg 2019.11.20
  */
-public class CustomPop extends PopupWindow {
+public class CustomPop extends PopupWindow implements SelectTextEventBus.Subscriber {
     private Context context;
 
     private View msgView;
+    private View popWindowView;
     private RecyclerView rv_content;
     private ImageView iv_arrow_up;
     private ImageView iv_arrow;
 
-    private List<Pair<Integer, String>> itemTextList = new LinkedList<>();
-    private List<onSeparateItemClickListener> itemListenerList = new LinkedList<>();
+    private List<SelectTextMenuItem> itemTextList = new ArrayList<>();
+    private List<onSeparateItemClickListener> itemListenerList = new ArrayList<>();
 
     private SelectTextPopAdapter listAdapter;
     private PopupWindow popupWindow;
@@ -68,7 +66,7 @@ public class CustomPop extends PopupWindow {
      * 图标 和 文字
      */
     public void addItem(@DrawableRes int drawableId, String itemText, onSeparateItemClickListener listener) {
-        itemTextList.add(new Pair<>(drawableId, itemText));
+        itemTextList.add(new SelectTextMenuItem(itemTextList.size(), itemTextList.size(), drawableId, itemText));
         itemListenerList.add(listener);
     }
 
@@ -123,13 +121,14 @@ public class CustomPop extends PopupWindow {
 
     private void init() {
         listAdapter = new SelectTextPopAdapter(context, itemTextList);
-        listAdapter.setOnclickItemListener(position -> {
+        listAdapter.setOnclickItemListener(item -> {
             SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
             dismiss();
-            itemListenerList.get(position).onClick();
+            // index是添加的顺序
+            itemListenerList.get(item.getIndex()).onClick();
         });
 
-        View popWindowView = LayoutInflater.from(context).inflate(R.layout.pop_operate, null);
+        popWindowView = LayoutInflater.from(context).inflate(R.layout.pop_operate, null);
 
         rv_content = popWindowView.findViewById(R.id.rv_content);
         iv_arrow_up = popWindowView.findViewById(R.id.iv_arrow_up);
@@ -160,13 +159,15 @@ public class CustomPop extends PopupWindow {
     }
 
     private void updateListView() {
-        listAdapter.notifyDataSetChanged();
+        listAdapter.submitList(itemTextList);
         if (rv_content != null) {
             rv_content.setAdapter(listAdapter);
         }
         int size = itemTextList.size();
-        int deviceWidth = SelectTextHelper.getDisplayWidth();
-        int deviceHeight = SelectTextHelper.getDisplayHeight();
+        // 所在窗口的尺寸，分屏时不是整个屏幕
+        SelectTextMetrics metrics = SelectTextMetrics.obtain(context);
+        int deviceWidth = metrics.getWidthPixels();
+        int deviceHeight = metrics.getHeightPixels();
         int statusHeight = SelectTextHelper.getStatusHeight();
         //计算箭头显示的位置
         int[] location = new int[2];
@@ -175,13 +176,13 @@ public class CustomPop extends PopupWindow {
         int msgViewHeight = msgView.getHeight();
         // view中心坐标 = view的位置 + view的宽度 / 2
         int centerWidth = location[0] + msgViewWidth / 2;
-        if (size > 5) {
-            mWidth = dp2px(12 * 4 + 52 * 5);
-            mHeight = dp2px(12 * 3 + 52 * 2 + 5);
-        } else {
-            mWidth = dp2px(12 * 4 + 52 * size);
-            mHeight = dp2px(12 * 2 + 52 + 5);
-        }
+        rv_content.setLayoutManager(new GridLayoutManager(context, Math.min(size, 5), GridLayoutManager.VERTICAL, false));
+        // 按实际的item测量，setItemWrapContent时宽度不是固定的52dp
+        popWindowView.measure(
+                View.MeasureSpec.makeMeasureSpec(deviceWidth, View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+        mWidth = popWindowView.getMeasuredWidth();
+        mHeight = popWindowView.getMeasuredHeight();
         // topUI true pop显示在顶部
         boolean topUI = location[1] > mHeight + statusHeight;
         View arrowView;
@@ -195,7 +196,6 @@ public class CustomPop extends PopupWindow {
             arrowView = iv_arrow_up;
         }
         if (size > 5) {
-            rv_content.setLayoutManager(new GridLayoutManager(context, 5, GridLayoutManager.VERTICAL, false));
             // x轴 （屏幕 - mWidth）/ 2
             int posX = (deviceWidth - mWidth) / 2;
             // topUI ?
@@ -212,7 +212,6 @@ public class CustomPop extends PopupWindow {
             int arrX = mWidth / 2 - dp2px(12 + 4);
             arrowView.setTranslationX(arrX);
         } else {
-            rv_content.setLayoutManager(new GridLayoutManager(context, size, GridLayoutManager.VERTICAL, false));
             // x轴 （屏幕 - mWidth）/ 2
             int posX = centerWidth - mWidth / 2;
             // 右侧的最大宽度
@@ -242,7 +241,7 @@ public class CustomPop extends PopupWindow {
     }
 
     // 隐藏 弹窗
-    @Subscribe(threadMode = ThreadMode.MAIN)
+    @Override
     public void handleSelector(SelectTextEvent event) {
         // 隐藏操作弹窗
         if ("dismissOperatePop".equals(event.getType())) {
@@ -256,8 +255,8 @@ public class CustomPop extends PopupWindow {
         SelectTextEventBus.getDefault().unregister(this);
     }
 
-    private static int dp2px(int num) {
-        return (int) (num * Resources.getSystem().getDisplayMetrics().density + 0.5f);
+    private int dp2px(int num) {
+        return SelectTextMetrics.obtain(context).dp2px(num);
     }
 
 }
\ No newline at end of file
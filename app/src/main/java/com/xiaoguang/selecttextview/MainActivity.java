@@ -40,7 +40,8 @@ public class MainActivity extends AppCompatActivity {
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
         if (ev.getAction() == MotionEvent.ACTION_DOWN) {
-            SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPopDelayed"));
+            // 只通知有选中文本的列表，和消息条数无关
+            SelectTextEventBus.getDefault().dispatchActive(new SelectTextEvent("dismissAllPopDelayed"));
         }
         return super.dispatchTouchEvent(ev);
     }
@@ -1,9 +1,8 @@
 package com.xiaoguang.selecttextview;
 
-import android.content.ClipData;
-import android.content.ClipboardManager;
 import android.content.Context;
 import android.text.TextUtils;
+import android.text.util.Linkify;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -17,10 +16,11 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.xiaoguang.selecttext.SelectTextClipboard;
+import com.xiaoguang.selecttext.SelectTextCrossController;
 import com.xiaoguang.selecttext.SelectTextHelper;
-
-import org.greenrobot.eventbus.Subscribe;
-import org.greenrobot.eventbus.ThreadMode;
+import com.xiaoguang.selecttext.SelectTextLinkify;
+import com.xiaoguang.selecttext.SelectTextListCoordinator;
 
 import java.util.List;
 
@@ -28,7 +28,8 @@ import java.util.List;
  * 消息
  * hxg 2020.9.13 qq:929842234
  */
-public class MsgAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+public class MsgAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder>
+        implements SelectTextEventBus.ActiveSelection {
 
     private static final int VIEW_TYPE_1 = 1;// 文本
     private static final int VIEW_TYPE_2 = 2;// 图片
@@ -151,18 +152,230 @@ public class MsgAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     ////////////////////////   演示消息列表选择文本 start   ///////////////////////////////
     ////////////////////////////////////////////////////////////////////////////////////
 
-    class ViewHolderText extends RecyclerView.ViewHolder {
-        private static final int SHOW_DELAY = 100;// 显示自定义弹窗延迟
-        private static final int RESET_DELAY = 120;// 重置自定义弹窗延迟
+    private static final int SHOW_DELAY = 100;// 显示自定义弹窗延迟
+    private static final int RESET_DELAY = 120;// 重置自定义弹窗延迟
+
+    private RecyclerView mRecyclerView;
+    private SelectTextListCoordinator mSelectCoordinator;// 整个列表共用一个选择文本
+    private SelectTextCrossController mCrossController;// 跨消息选择文本
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        mRecyclerView = recyclerView;
+        mSelectCoordinator = new SelectTextListCoordinator(recyclerView, new SelectTextHelper
+                .Builder(mContext)
+                .setCursorHandleColor(mContext.getResources().getColor(R.color.colorAccent))// 游标颜色
+                .setCursorHandleSizeInDp(22)// 游标大小 单位dp
+                .setSelectedColor(mContext.getResources().getColor(R.color.colorAccentTransparent))// 选中文本的颜色
+                .setSelectAll(true)// 初次选中是否全选 default true
+                .setScrollShow(true)// 滚动时是否继续显示 default true
+                .setScrollFollow(true)// 滚动时弹窗和游标跟随移动，不先隐藏再显示 default false
+                .setAutoLink(Linkify.WEB_URLS)// 后台识别链接 default 0 不识别
+                .setSelectedAllNoPop(true)// 已经全选无弹窗，设置了监听会回调 onSelectAllShowCustomPop 方法
+                .setMagnifierShow(true)// 放大镜 default true
+                .addItem(R.drawable.ic_msg_copy, R.string.copy, () -> copy(getSelectHelper(), getSelectHelper().getSelectedText()))
+                .addItem(R.drawable.ic_msg_select_all, R.string.select_all, this::selectAll)
+                .addItem(R.drawable.ic_msg_forward, R.string.forward, this::forward)
+                .setPopSpanCount(5)// 设置操作弹窗每行个数 default 5
+                .setPopStyle(R.drawable.shape_color_4c4c4c_radius_8/*操作弹窗背*/, R.drawable.ic_arrow/*箭头图片*/));// 设置操作弹窗背景色、箭头图片
+
+        mSelectCoordinator.setSelectListener(new SelectTextHelper.OnSelectListener() {
+            /**
+             * 点击回调
+             */
+            @Override
+            public void onClick(View v) {
+                if (mCrossController.isSelected()) {
+                    mCrossController.reset();
+                    return;
+                }
+                ViewHolderText holder = findTextHolder(v);
+                if (null != holder) {
+                    holder.clickTextView(holder.textView.getText().toString().trim());
+                }
+            }
+
+            /**
+             * 长按回调
+             */
+            @Override
+            public void onLongClick(View v) {
+                mCrossController.reset();
+                SelectTextEventBus.getDefault().setActiveSelection(MsgAdapter.this);
+                ViewHolderText holder = findTextHolder(v);
+                if (null != holder) {
+                    holder.postShowCustomPop(SHOW_DELAY);
+                }
+            }
+
+            /**
+             * 选中文本回调
+             */
+            @Override
+            public void onTextSelected(CharSequence content) {
+                // 复制时再通过 getSelectedText() 取文本
+                SelectTextEventBus.getDefault().setActiveSelection(MsgAdapter.this);
+            }
+
+            /**
+             * 弹窗关闭回调
+             */
+            @Override
+            public void onDismiss() {
+            }
+
+            /**
+             * 点击TextView里的url回调
+             *
+             * 已被下面重写
+             * textView.setMovementMethod(new LinkMovementMethodInterceptor());
+             */
+            @Override
+            public void onClickUrl(String url) {
+                toast("点击了：  " + url);
+            }
+
+            /**
+             * 全选显示自定义弹窗回调
+             */
+            @Override
+            public void onSelectAllShowCustomPop() {
+                ViewHolderText holder = findTextHolder(mSelectCoordinator.getTextView());
+                if (null != holder) {
+                    holder.postShowCustomPop(SHOW_DELAY);
+                }
+            }
+
+            /**
+             * 重置回调
+             */
+            @Override
+            public void onReset() {
+                SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissOperatePop"));
+                if (!mCrossController.isSelected()) {
+                    SelectTextEventBus.getDefault().clearActiveSelection(MsgAdapter.this);
+                }
+            }
+
+            /**
+             * 解除自定义弹窗回调
+             */
+            @Override
+            public void onDismissCustomPop() {
+                SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissOperatePop"));
+            }
+
+            /**
+             * 是否正在滚动回调
+             */
+            @Override
+            public void onScrolling() {
+                removeShowSelectView();
+            }
+        });
+
+        mCrossController = new SelectTextCrossController
+                .Builder(recyclerView, mCrossSource)
+                .setCursorHandleColor(mContext.getResources().getColor(R.color.colorAccent))
+                .setCursorHandleSizeInDp(22)
+                .setSelectedColor(mContext.getResources().getColor(R.color.colorAccentTransparent))
+                .addItem(R.drawable.ic_msg_copy, R.string.copy,
+                        () -> copy(null, mCrossController.getSelectedText()))
+                .addItem(R.drawable.ic_msg_forward, R.string.forward, this::forward)
+                .build();
+        mCrossController.setSelectListener(new SelectTextCrossController.OnSelectListener() {
+            @Override
+            public void onSelectionChanged(int startPosition, int startOffset, int endPosition, int endOffset) {
+                SelectTextEventBus.getDefault().setActiveSelection(MsgAdapter.this);
+            }
 
+            @Override
+            public void onReset() {
+                if (null == getSelectHelper().getSelectionRange()) {
+                    SelectTextEventBus.getDefault().clearActiveSelection(MsgAdapter.this);
+                }
+            }
+        });
+
+        // 注册
+        if (!SelectTextEventBus.getDefault().isRegistered(this)) {
+            SelectTextEventBus.getDefault().register(this, SelectTextEvent.class);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (holder instanceof ViewHolderText) {
+            // 回收后不再需要之前文本的链接
+            SelectTextLinkify.cancel(((ViewHolderText) holder).textView);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        // 注销
+        SelectTextEventBus.getDefault().unregister(this);
+        SelectTextEventBus.getDefault().clearActiveSelection(this);
+        if (null != mSelectCoordinator) {
+            mSelectCoordinator.destroy();
+            mSelectCoordinator = null;
+        }
+        if (null != mCrossController) {
+            mCrossController.destroy();
+            mCrossController = null;
+        }
+        mRecyclerView = null;
+    }
+
+    private SelectTextHelper getSelectHelper() {
+        return mSelectCoordinator.getHelper();
+    }
+
+    /**
+     * 跨消息选择时，文本消息可以选择，其余的跳过
+     */
+    private final SelectTextCrossController.Source mCrossSource = new SelectTextCrossController.Source() {
+        @Override
+        public CharSequence getText(int position) {
+            MsgBean msgBean = mList.get(position);
+            return msgBean.getType() == VIEW_TYPE_1 ? msgBean.getContent() : null;
+        }
+
+        @Override
+        public TextView getTextView(RecyclerView.ViewHolder holder) {
+            return holder instanceof ViewHolderText ? ((ViewHolderText) holder).textView : null;
+        }
+    };
+
+    /**
+     * 从这条消息开始跨消息选择，拖动游标可以扩展到其他消息
+     */
+    private void startCrossSelect(int position) {
+        if (null == mCrossController || position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        mSelectCoordinator.reset();
+        mCrossController.select(position);
+    }
+
+    private ViewHolderText findTextHolder(View v) {
+        if (null == v || null == mRecyclerView) {
+            return null;
+        }
+        RecyclerView.ViewHolder holder = mRecyclerView.findContainingViewHolder(v);
+        return holder instanceof ViewHolderText ? (ViewHolderText) holder : null;
+    }
+
+    class ViewHolderText extends RecyclerView.ViewHolder {
         private RelativeLayout text_rl_container;
         private ImageView iv_head_left;
         private ImageView iv_head_right;
         private TextView textView;
 
-        private SelectTextHelper mSelectableTextHelper;
         private MsgBean textMsgBean;
-        private String selectedText;
 
         ViewHolderText(View itemView) {
             super(itemView);
@@ -174,105 +387,12 @@ public class MsgAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
         /**
          * 演示消息列表选择文本
+         * 这里只登记textView，长按时才接入选择文本
          */
         private void selectText(MsgBean msgBean) {
             textMsgBean = msgBean;
-
-            mSelectableTextHelper = new SelectTextHelper
-                    .Builder(textView)// 放你的textView到这里！！
-                    .setCursorHandleColor(mContext.getResources().getColor(R.color.colorAccent))// 游标颜色
-                    .setCursorHandleSizeInDp(22)// 游标大小 单位dp
-                    .setSelectedColor(mContext.getResources().getColor(R.color.colorAccentTransparent))// 选中文本的颜色
-                    .setSelectAll(true)// 初次选中是否全选 default true
-                    .setScrollShow(true)// 滚动时是否继续显示 default true
-                    .setSelectedAllNoPop(true)// 已经全选无弹窗，设置了监听会回调 onSelectAllShowCustomPop 方法
-                    .setMagnifierShow(true)// 放大镜 default true
-                    .addItem(R.drawable.ic_msg_copy, R.string.copy, () -> copy(mSelectableTextHelper, selectedText))
-                    .addItem(R.drawable.ic_msg_select_all, R.string.select_all, this::selectAll)
-                    .addItem(R.drawable.ic_msg_forward, R.string.forward, this::forward)
-                    .setPopSpanCount(5)// 设置操作弹窗每行个数 default 5
-                    .setPopStyle(R.drawable.shape_color_4c4c4c_radius_8/*操作弹窗背*/, R.drawable.ic_arrow/*箭头图片*/)// 设置操作弹窗背景色、箭头图片
-                    .build();
-
-            mSelectableTextHelper.setSelectListener(new SelectTextHelper.OnSelectListener() {
-                /**
-                 * 点击回调
-                 */
-                @Override
-                public void onClick(View v) {
-                    clickTextView(textView.getText().toString().trim());
-                }
-
-                /**
-                 * 长按回调
-                 */
-                @Override
-                public void onLongClick(View v) {
-                    postShowCustomPop(SHOW_DELAY);
-                }
-
-                /**
-                 * 选中文本回调
-                 */
-                @Override
-                public void onTextSelected(CharSequence content) {
-                    selectedText = content.toString();
-                }
-
-                /**
-                 * 弹窗关闭回调
-                 */
-                @Override
-                public void onDismiss() {
-                }
-
-                /**
-                 * 点击TextView里的url回调
-                 *
-                 * 已被下面重写
-                 * textView.setMovementMethod(new LinkMovementMethodInterceptor());
-                 */
-                @Override
-                public void onClickUrl(String url) {
-                    toast("点击了：  " + url);
-                }
-
-                /**
-                 * 全选显示自定义弹窗回调
-                 */
-                @Override
-                public void onSelectAllShowCustomPop() {
-                    postShowCustomPop(SHOW_DELAY);
-                }
-
-                /**
-                 * 重置回调
-                 */
-                @Override
-                public void onReset() {
-                    SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissOperatePop"));
-                }
-
-                /**
-                 * 解除自定义弹窗回调
-                 */
-                @Override
-                public void onDismissCustomPop() {
-                    SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissOperatePop"));
-                }
-
-                /**
-                 * 是否正在滚动回调
-                 */
-                @Override
-                public void onScrolling() {
-                    removeShowSelectView();
-                }
-            });
-
-            // 注册
-            if (!SelectTextEventBus.getDefault().isRegistered(this)) {
-                SelectTextEventBus.getDefault().register(this, SelectTextEvent.class);
+            if (null != mSelectCoordinator) {
+                mSelectCoordinator.register(textView);
             }
         }
 
@@ -305,41 +425,6 @@ public class MsgAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         private final Runnable mShowCustomPopRunnable =
                 () -> showCustomPop(text_rl_container, textMsgBean);
 
-        /**
-         * 延迟重置
-         * 为了支持滑动不重置
-         */
-        private void postReset(int duration) {
-            textView.removeCallbacks(mShowSelectViewRunnable);
-            textView.postDelayed(mShowSelectViewRunnable, duration);
-        }
-
-        private void removeShowSelectView() {
-            textView.removeCallbacks(mShowSelectViewRunnable);
-        }
-
-        private final Runnable mShowSelectViewRunnable =
-                () -> mSelectableTextHelper.reset();
-
-
-        /**
-         * 全选
-         */
-        private void selectAll() {
-            SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
-            if (null != mSelectableTextHelper) {
-                mSelectableTextHelper.selectAll();
-            }
-        }
-
-        /**
-         * 转发
-         */
-        private void forward() {
-            SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
-            toast("转发");
-        }
-
         /**
          * 自定义弹窗
          *
@@ -349,11 +434,11 @@ public class MsgAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
         private void showCustomPop(View targetView, MsgBean msgBean) {
             boolean isText = msgBean.getType() == VIEW_TYPE_1;// 是否文本类型
             CustomPop msgPop = new CustomPop(mContext, targetView, isText);
-            msgPop.addItem(R.drawable.ic_msg_copy, R.string.copy, () -> copy(mSelectableTextHelper, selectedText));
+            msgPop.addItem(R.drawable.ic_msg_copy, R.string.copy, () -> copy(getSelectHelper(), getSelectHelper().getSelectedText()));
             msgPop.addItem(R.drawable.ic_msg_rollback, R.string.rollback, () -> toast(R.string.rollback));
             msgPop.addItem(R.drawable.ic_msg_forward, R.string.forward, () -> toast(R.string.forward));
             msgPop.addItem(R.drawable.ic_msg_collect, R.string.collect, () -> toast(R.string.collect));
-            msgPop.addItem(R.drawable.ic_msg_select, R.string.select, () -> toast(R.string.select));
+            msgPop.addItem(R.drawable.ic_msg_select, R.string.select, () -> startCrossSelect(getAdapterPosition()));
             msgPop.addItem(R.drawable.ic_msg_quote, R.string.quote, () -> toast(R.string.quote));
             msgPop.addItem(R.drawable.ic_msg_delete, R.string.delete, () -> toast(R.string.delete));
             // 设置每个item自适应
@@ -362,52 +447,88 @@ public class MsgAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
             // msgPop.setPopStyle(R.drawable.shape_color_666666_radius_8, R.drawable.ic_arrow_666);
             msgPop.show();
         }
+    }
 
-        /**
-         * 自定义SelectTextEvent 隐藏 光标
-         */
-        @Subscribe(threadMode = ThreadMode.MAIN)
-        public void handleSelector(SelectTextEvent event) {
-            if (null == mSelectableTextHelper) {
-                return;
-            }
-            String type = event.getType();
-            if (TextUtils.isEmpty(type)) {
-                return;
-            }
-            switch (type) {
-                case "dismissAllPop":
-                    mSelectableTextHelper.reset();
-                    break;
-                case "dismissAllPopDelayed":
-                    postReset(RESET_DELAY);
-                    break;
-            }
+    /**
+     * 延迟重置
+     * 为了支持滑动不重置
+     */
+    private void postReset(int duration) {
+        if (null == mRecyclerView) {
+            return;
+        }
+        mRecyclerView.removeCallbacks(mResetRunnable);
+        mRecyclerView.postDelayed(mResetRunnable, duration);
+    }
+
+    private void removeShowSelectView() {
+        if (null != mRecyclerView) {
+            mRecyclerView.removeCallbacks(mResetRunnable);
         }
     }
 
+    private final Runnable mResetRunnable = () -> {
+        if (null != mSelectCoordinator) {
+            mSelectCoordinator.reset();
+        }
+        if (null == mCrossController || !mCrossController.isSelected()) {
+            SelectTextEventBus.getDefault().clearActiveSelection(this);
+        }
+    };
+
     /**
-     * 复制
+     * 全选
      */
-    private void copy(SelectTextHelper mSelectableTextHelper, String selectedText) {
+    private void selectAll() {
         SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
-        ClipboardManager cm = (ClipboardManager) mContext.getSystemService(Context.CLIPBOARD_SERVICE);
-        if (cm != null) {
-            cm.setPrimaryClip(ClipData.newPlainText(selectedText, selectedText));
+        if (null != mSelectCoordinator) {
+            getSelectHelper().selectAll();
         }
-        if (null != mSelectableTextHelper) {
-            mSelectableTextHelper.reset();
-        }
-        toast("已复制");
     }
 
+    /**
+     * 转发
+     */
+    private void forward() {
+        SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
+        toast("转发");
+    }
+
+    /**
+     * 自定义SelectTextEvent 隐藏 光标
+     * 触摸屏幕的 dismissAllPopDelayed 只在有选中文本时通过 dispatchActive 收到
+     */
     @Override
-    public void onViewRecycled(@NonNull RecyclerView.ViewHolder holder) {
-        super.onViewRecycled(holder);
-        if (holder instanceof ViewHolderText) {
-            // 注销
-            SelectTextEventBus.getDefault().unregister(holder);
+    public void handleSelector(SelectTextEvent event) {
+        if (null == mSelectCoordinator) {
+            return;
         }
+        String type = event.getType();
+        if (TextUtils.isEmpty(type)) {
+            return;
+        }
+        switch (type) {
+            case "dismissAllPop":
+                mSelectCoordinator.reset();
+                mCrossController.reset();
+                SelectTextEventBus.getDefault().clearActiveSelection(this);
+                break;
+            case "dismissAllPopDelayed":
+                postReset(RESET_DELAY);
+                break;
+        }
+    }
+
+    /**
+     * 复制
+     */
+    private void copy(SelectTextHelper mSelectableTextHelper, CharSequence selectedText) {
+        SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
+        SelectTextClipboard.copy(mContext, selectedText);
+        if (null != mSelectableTextHelper) {
+            mSelectableTextHelper.reset();
+        }
+        toast("已复制");
     }
 
     ////////////////////////////////////////////////////////////////////////////////////
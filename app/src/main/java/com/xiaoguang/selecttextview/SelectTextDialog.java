@@ -1,16 +1,19 @@
 package com.xiaoguang.selecttextview;
 
 import android.app.Dialog;
-import android.content.ClipData;
-import android.content.ClipboardManager;
 import android.content.Context;
 import android.os.Bundle;
+import android.text.util.Linkify;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.xiaoguang.selecttext.SelectTextClipboard;
+import com.xiaoguang.selecttext.SelectTextDocumentController;
 import com.xiaoguang.selecttext.SelectTextHelper;
 
 
@@ -20,9 +23,11 @@ import com.xiaoguang.selecttext.SelectTextHelper;
  */
 public class SelectTextDialog extends Dialog {
 
+    private static final int LARGE_TEXT_LENGTH = 20000;// 超过这个长度分段显示
+
     private SelectTextHelper mSelectableTextHelper;
+    private SelectTextDocumentController mDocumentController;// 长文本分段选择
     private String mText;
-    private String selectText;
 
     public SelectTextDialog(Context context, String mText) {
         super(context, R.style.SelectTextFragment);
@@ -41,14 +46,17 @@ public class SelectTextDialog extends Dialog {
         getWindow().setLayout(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
 
         findViewById(R.id.rl_selector).setOnClickListener(v -> {
-            if (mSelectableTextHelper.isPopShowing()) {
-                mSelectableTextHelper.reset();
+            if (isPopShowing()) {
+                reset();
             } else {
                 dismiss();
             }
         });
+        if (mText.length() > LARGE_TEXT_LENGTH) {
+            initDocument();
+            return;
+        }
         TextView tv_msg_content = findViewById(R.id.tv_msg_content);
-        tv_msg_content.setText(mText);
         if ((mText.length() > 0 && mText.length() > 16)
                 || mText.contains("\n")) {
             tv_msg_content.setGravity(Gravity.START);
@@ -61,13 +69,19 @@ public class SelectTextDialog extends Dialog {
                 .setCursorHandleSizeInDp(24)
                 .setSelectedColor(getContext().getResources().getColor(R.color.colorAccentTransparent))
                 .setSelectAll(false)
+                .setAutoLink(Linkify.WEB_URLS)
                 .addItem(R.drawable.ic_msg_copy, R.string.copy,
-                        () -> copy(selectText))
+                        () -> copy(mSelectableTextHelper.getSelectedText()))
                 .addItem(R.drawable.ic_msg_select_all, R.string.select_all,
                         this::selectAll)
                 .addItem(R.drawable.ic_msg_forward, R.string.forward,
-                        () -> forward(selectText))
+                        () -> forward(mSelectableTextHelper.getSelectedText()))
+                // 已经全选时隐藏全选
+                .setItemVisibleFilter((item, helper) ->
+                        item.getId() != R.string.select_all || !helper.isSelectAll())
                 .build();
+        // 长文本在后台测量排版
+        mSelectableTextHelper.setTextAsync(mText);
 
         mSelectableTextHelper.setSelectListener(new SelectTextHelper.OnSelectListener() {
             @Override
@@ -80,7 +94,6 @@ public class SelectTextDialog extends Dialog {
 
             @Override
             public void onTextSelected(CharSequence content) {
-                selectText = content.toString();
             }
 
             @Override
@@ -111,22 +124,60 @@ public class SelectTextDialog extends Dialog {
         });
     }
 
+    /**
+     * 长文本只布局屏幕上的段落，选区可以跨段落
+     */
+    private void initDocument() {
+        findViewById(R.id.sv_msg_content).setVisibility(View.GONE);
+        RecyclerView rv_msg_content = findViewById(R.id.rv_msg_content);
+        rv_msg_content.setVisibility(View.VISIBLE);
+        mDocumentController = new SelectTextDocumentController
+                .Builder(rv_msg_content, mText)
+                .setItemLayout(R.layout.item_msg_chunk)
+                .setCursorHandleColor(getContext().getResources().getColor(R.color.colorAccent))
+                .setCursorHandleSizeInDp(24)
+                .setSelectedColor(getContext().getResources().getColor(R.color.colorAccentTransparent))
+                .addItem(R.drawable.ic_msg_copy, R.string.copy,
+                        () -> copy(mDocumentController.getSelectedText()))
+                .addItem(R.drawable.ic_msg_select_all, R.string.select_all,
+                        this::selectAll)
+                .addItem(R.drawable.ic_msg_forward, R.string.forward,
+                        () -> forward(mDocumentController.getSelectedText()))
+                .build();
+    }
+
+    private boolean isPopShowing() {
+        if (null != mDocumentController) {
+            return mDocumentController.isPopShowing();
+        }
+        return null != mSelectableTextHelper && mSelectableTextHelper.isPopShowing();
+    }
+
+    private void reset() {
+        if (null != mDocumentController) {
+            mDocumentController.reset();
+        }
+        if (null != mSelectableTextHelper) {
+            mSelectableTextHelper.reset();
+        }
+    }
+
     @Override
     public void dismiss() {
-        mSelectableTextHelper.reset();
+        reset();
+        if (null != mDocumentController) {
+            mDocumentController.destroy();
+        }
         super.dismiss();
     }
 
     /**
      * 复制
      */
-    private void copy(String selectText) {
+    private void copy(CharSequence selectText) {
         SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
-        ClipboardManager cm = (ClipboardManager) getContext().getSystemService(Context.CLIPBOARD_SERVICE);
-        if (cm != null) {
-            cm.setPrimaryClip(ClipData.newPlainText(selectText, selectText));
-        }
-        mSelectableTextHelper.reset();
+        SelectTextClipboard.copy(getContext(), selectText);
+        reset();
         toast("已复制");
     }
 
@@ -135,7 +186,9 @@ public class SelectTextDialog extends Dialog {
      */
     private void selectAll() {
         SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
-        if (null != mSelectableTextHelper) {
+        if (null != mDocumentController) {
+            mDocumentController.selectAll();
+        } else if (null != mSelectableTextHelper) {
             mSelectableTextHelper.selectAll();
         }
     }
@@ -143,7 +196,7 @@ public class SelectTextDialog extends Dialog {
     /**
      * 转发
      */
-    private void forward(String content) {
+    private void forward(CharSequence content) {
         SelectTextEventBus.getDefault().dispatch(new SelectTextEvent("dismissAllPop"));
         // todo 转发
         toast("转发");
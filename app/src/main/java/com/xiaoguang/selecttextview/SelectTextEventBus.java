@@ -2,24 +2,76 @@ package com.xiaoguang.selecttextview;
 
 
 import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+import org.greenrobot.eventbus.ThreadMode;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 选择文本的事件总线
  * 这里的方法比较low，用户自行实现
  * hxg 2021/9/2 14:26 qq:929842234
+ * <p>
+ * EventBus 里只注册一个内部的分发者，订阅者用弱引用保存在 CopyOnWriteArrayList 里：
+ * 分发时遍历快照不加锁，可以在任意线程 register/unregister/dispatch；
+ * 订阅者被回收后自动清除，没有 unregister 的 ViewHolder 也不会泄漏。
+ * 因为是弱引用，订阅者需要有别的地方持有，不能是临时的匿名对象。
+ * 没有实现 {@link Subscriber} 的对象仍按之前的方式直接注册到 EventBus（强引用，需要自己注销）。
  */
 public class SelectTextEventBus {
     private static volatile SelectTextEventBus defaultInstance;
 
-    private final Map<Object, List<Class<?>>> typesBySubscriber;
+    private final CopyOnWriteArrayList<Registration> registrations;
+    private final CopyOnWriteArrayList<Object> legacySubscribers;// 直接注册到 EventBus 的对象
+    private final Dispatcher dispatcher;
+
+    // 当前有选中文本的对象，同一时间只有一个
+    private volatile WeakReference<Subscriber> activeSelection;
+
+    /**
+     * 订阅者
+     * 事件在主线程回调
+     */
+    public interface Subscriber {
+        void handleSelector(SelectTextEvent event);
+    }
+
+    /**
+     * 有选中文本的对象
+     * 触摸屏幕时只通知它，不用广播给所有订阅者
+     */
+    public interface ActiveSelection extends Subscriber {
+    }
+
+    /**
+     * 订阅者的弱引用和订阅的事件类型
+     */
+    private static final class Registration extends WeakReference<Subscriber> {
+        final Class<?> eventClass;
+
+        Registration(Subscriber subscriber, Class<?> eventClass) {
+            super(subscriber);
+            this.eventClass = eventClass;
+        }
+    }
+
+    /**
+     * 唯一注册到 EventBus 的对象，由它在主线程转给订阅者
+     */
+    public final class Dispatcher {
+        @Subscribe(threadMode = ThreadMode.MAIN)
+        public void handleSelector(SelectTextEvent event) {
+            deliver(event);
+        }
+    }
 
     public SelectTextEventBus() {
-        typesBySubscriber = new HashMap<>();
+        registrations = new CopyOnWriteArrayList<>();
+        legacySubscribers = new CopyOnWriteArrayList<>();
+        dispatcher = new Dispatcher();
     }
 
     public static SelectTextEventBus getDefault() {
@@ -33,48 +85,136 @@ public class SelectTextEventBus {
         return defaultInstance;
     }
 
-    public void register(Object subscriber, Class eventClass) {
-        EventBus.getDefault().register(subscriber);
+    /**
+     * 注册，重复注册同一个事件类型只记录一次
+     * 写操作加锁，分发不受影响
+     */
+    public synchronized void register(Subscriber subscriber, Class<?> eventClass) {
+        prune();
+        for (Registration registration : registrations) {
+            if (registration.get() == subscriber && registration.eventClass == eventClass) {
+                return;
+            }
+        }
+        registrations.add(new Registration(subscriber, eventClass));
+        if (!EventBus.getDefault().isRegistered(dispatcher)) {
+            EventBus.getDefault().register(dispatcher);
+        }
+    }
 
-        List<Class<?>> subscribedEvents = typesBySubscriber.get(subscriber);
-        if (subscribedEvents == null) {
-            subscribedEvents = new ArrayList<>();
-            typesBySubscriber.put(subscriber, subscribedEvents);
+    /**
+     * 兼容之前的写法，subscriber 用 @Subscribe 方法接收事件
+     * 实现了 {@link Subscriber} 的按弱引用注册，否则直接注册到 EventBus，需要自己 unregister
+     */
+    public synchronized void register(Object subscriber, Class<?> eventClass) {
+        if (subscriber instanceof Subscriber) {
+            register((Subscriber) subscriber, eventClass);
+            return;
         }
+        if (!EventBus.getDefault().isRegistered(subscriber)) {
+            EventBus.getDefault().register(subscriber);
+        }
+        legacySubscribers.addIfAbsent(subscriber);
+    }
 
-        subscribedEvents.add(eventClass);
+    public boolean isRegistered(Subscriber subscriber) {
+        for (Registration registration : registrations) {
+            if (registration.get() == subscriber) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    public synchronized boolean isRegistered(Object subscriber) {
-        if (EventBus.getDefault().isRegistered(subscriber)) {
-            return true;
+    public boolean isRegistered(Object subscriber) {
+        if (subscriber instanceof Subscriber) {
+            return isRegistered((Subscriber) subscriber);
         }
-        return typesBySubscriber.containsKey(subscriber);
+        return legacySubscribers.contains(subscriber);
     }
 
     /**
      * 这里主要实现了注销功能
      */
     public synchronized void unregister() {
-        for (Object key : typesBySubscriber.keySet()) {
-            EventBus.getDefault().unregister(key);
+        registrations.clear();
+        for (Object subscriber : legacySubscribers) {
+            EventBus.getDefault().unregister(subscriber);
+        }
+        legacySubscribers.clear();
+        activeSelection = null;
+        if (EventBus.getDefault().isRegistered(dispatcher)) {
+            EventBus.getDefault().unregister(dispatcher);
         }
-
-        typesBySubscriber.clear();
     }
 
     /**
      * 注销
      */
+    public synchronized void unregister(Subscriber subscriber) {
+        List<Registration> removed = new ArrayList<>();
+        for (Registration registration : registrations) {
+            Subscriber registered = registration.get();
+            if (null == registered || registered == subscriber) {
+                removed.add(registration);
+            }
+        }
+        registrations.removeAll(removed);
+        clearActiveSelection(subscriber);
+    }
+
+    /**
+     * 注销，兼容之前的写法
+     */
     public synchronized void unregister(Object subscriber) {
-        if (typesBySubscriber.containsKey(subscriber)) {
+        if (subscriber instanceof Subscriber) {
+            unregister((Subscriber) subscriber);
+        } else if (legacySubscribers.remove(subscriber)) {
             EventBus.getDefault().unregister(subscriber);
-            typesBySubscriber.remove(subscriber);
+        }
+    }
+
+    /**
+     * 还没被回收的订阅者个数，测试用
+     */
+    int getSubscriberCount() {
+        int count = 0;
+        for (Registration registration : registrations) {
+            if (null != registration.get()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 记录的订阅者个数，包括已经被回收、还没清除的，测试用
+     */
+    int getRegistrationCount() {
+        return registrations.size();
+    }
+
+    /**
+     * 清除已经被回收的订阅者
+     */
+    private void prune() {
+        List<Registration> removed = null;
+        for (Registration registration : registrations) {
+            if (null == registration.get()) {
+                if (null == removed) {
+                    removed = new ArrayList<>();
+                }
+                removed.add(registration);
+            }
+        }
+        if (null != removed) {
+            registrations.removeAll(removed);
         }
     }
 
     /**
      * 分发事件
+     * 任意线程调用，订阅者在主线程收到
      *
      * @param event
      */
@@ -82,4 +222,68 @@ public class SelectTextEventBus {
         EventBus.getDefault().post(event);
     }
 
-}
\ No newline at end of file
+    /**
+     * 遍历注册时的快照，期间的注册、注销不影响这次分发
+     */
+    private void deliver(SelectTextEvent event) {
+        boolean collected = false;
+        for (Registration registration : registrations) {
+            Subscriber subscriber = registration.get();
+            if (null == subscriber) {
+                collected = true;
+            } else if (registration.eventClass.isInstance(event)) {
+                subscriber.handleSelector(event);
+            }
+        }
+        if (collected) {
+            synchronized (this) {
+                prune();
+            }
+        }
+    }
+
+    /**
+     * 记录有选中文本的对象
+     * 之前的对象会先收到 dismissAllPop
+     */
+    public void setActiveSelection(ActiveSelection owner) {
+        WeakReference<Subscriber> previous = activeSelection;
+        activeSelection = new WeakReference<>(owner);
+        Subscriber previousOwner = null == previous ? null : previous.get();
+        if (null != previousOwner && previousOwner != owner) {
+            previousOwner.handleSelector(new SelectTextEvent("dismissAllPop"));
+        }
+    }
+
+    /**
+     * 选中取消后清除记录，只清除自己的
+     */
+    public void clearActiveSelection(Subscriber owner) {
+        WeakReference<Subscriber> active = activeSelection;
+        if (null != active && active.get() == owner) {
+            activeSelection = null;
+        }
+    }
+
+    public boolean hasActiveSelection() {
+        WeakReference<Subscriber> active = activeSelection;
+        return null != active && null != active.get();
+    }
+
+    /**
+     * 只分发给有选中文本的对象，没有时什么都不做
+     * 主线程调用
+     *
+     * @param event
+     */
+    public void dispatchActive(SelectTextEvent event) {
+        WeakReference<Subscriber> active = activeSelection;
+        Subscriber owner = null == active ? null : active.get();
+        if (null != owner) {
+            owner.handleSelector(event);
+        } else if (null != active) {
+            activeSelection = null;
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.xiaoguang.selecttextview;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SelectTextEventBus 多线程注册、分发、注销
+ * 不在 Android 上时 EventBus 的 MAIN 在发送的线程回调，可以直接在 JVM 上跑
+ */
+public class SelectTextEventBusTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 2000;
+    private static final int LIVE_PER_THREAD = 50;
+
+    private SelectTextEventBus bus;
+
+    @Before
+    public void setUp() {
+        bus = new SelectTextEventBus();
+    }
+
+    @After
+    public void tearDown() {
+        bus.unregister();
+    }
+
+    private static final class CountingSubscriber implements SelectTextEventBus.Subscriber {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void handleSelector(SelectTextEvent event) {
+            count.incrementAndGet();
+        }
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    /**
+     * 所有线程同时开始，返回各线程抛出的异常
+     */
+    private static List<Throwable> runConcurrently(Worker worker) throws InterruptedException {
+        final ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            final int thread = i;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(thread);
+                } catch (Throwable t) {
+                    errors.add(t);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue("timeout", done.await(60, TimeUnit.SECONDS));
+        return new ArrayList<>(errors);
+    }
+
+    @Test
+    public void concurrentRegisterDispatchUnregister_keepsLiveSubscribers() throws Exception {
+        final CountingSubscriber[][] live = new CountingSubscriber[THREADS][LIVE_PER_THREAD];
+
+        List<Throwable> errors = runConcurrently(thread -> {
+            for (int i = 0; i < ITERATIONS; i++) {
+                // 一直持有的订阅者
+                if (i < LIVE_PER_THREAD) {
+                    live[thread][i] = new CountingSubscriber();
+                    bus.register(live[thread][i], SelectTextEvent.class);
+                }
+                // 注册后马上注销的订阅者
+                CountingSubscriber temp = new CountingSubscriber();
+                bus.register(temp, SelectTextEvent.class);
+                bus.dispatch(new SelectTextEvent("dismissOperatePop"));
+                bus.unregister(temp);
+                assertFalse(bus.isRegistered(temp));
+                // 不持有，交给 GC 清除
+                bus.register(new CountingSubscriber(), SelectTextEvent.class);
+            }
+        });
+
+        // 没有 ConcurrentModificationException 或其他异常
+        assertTrue(String.valueOf(errors), errors.isEmpty());
+
+        // 没有丢失的订阅者，每个都恰好收到一次
+        for (CountingSubscriber[] subscribers : live) {
+            for (CountingSubscriber subscriber : subscribers) {
+                assertTrue(bus.isRegistered(subscriber));
+                subscriber.count.set(0);
+            }
+        }
+        bus.dispatch(new SelectTextEvent("dismissAllPop"));
+        for (CountingSubscriber[] subscribers : live) {
+            for (CountingSubscriber subscriber : subscribers) {
+                assertEquals(1, subscriber.count.get());
+            }
+        }
+    }
+
+    @Test
+    public void collectedSubscribersArePruned_liveOnesAreNot() throws Exception {
+        final List<CountingSubscriber> live = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            CountingSubscriber subscriber = new CountingSubscriber();
+            live.add(subscriber);
+            bus.register(subscriber, SelectTextEvent.class);
+        }
+        registerGarbage(1000);
+        awaitCollected(live.size());
+
+        // 分发时清除已经被回收的
+        bus.dispatch(new SelectTextEvent("dismissAllPop"));
+
+        assertEquals(live.size(), bus.getRegistrationCount());
+        assertEquals(live.size(), bus.getSubscriberCount());
+        for (CountingSubscriber subscriber : live) {
+            assertTrue(bus.isRegistered(subscriber));
+            assertEquals(1, subscriber.count.get());
+        }
+    }
+
+    @Test
+    public void concurrentPruneDoesNotDropLiveSubscribers() throws Exception {
+        final CountingSubscriber[] live = new CountingSubscriber[THREADS];
+
+        List<Throwable> errors = runConcurrently(thread -> {
+            live[thread] = new CountingSubscriber();
+            bus.register(live[thread], SelectTextEvent.class);
+            for (int i = 0; i < ITERATIONS; i++) {
+                bus.register(new CountingSubscriber(), SelectTextEvent.class);
+                if (i % 100 == 0) {
+                    System.gc();
+                }
+                bus.dispatch(new SelectTextEvent("dismissOperatePop"));
+            }
+        });
+
+        assertTrue(String.valueOf(errors), errors.isEmpty());
+        for (CountingSubscriber subscriber : live) {
+            assertTrue(bus.isRegistered(subscriber));
+            // 自己线程的每次分发至少收到一次
+            assertTrue(subscriber.count.get() >= ITERATIONS);
+        }
+    }
+
+    @Test
+    public void legacySubscriberKeepsWorking() {
+        LegacySubscriber subscriber = new LegacySubscriber();
+        bus.register((Object) subscriber, SelectTextEvent.class);
+        assertTrue(bus.isRegistered((Object) subscriber));
+
+        bus.dispatch(new SelectTextEvent("dismissAllPop"));
+        assertEquals(1, subscriber.count);
+
+        bus.unregister((Object) subscriber);
+        assertFalse(bus.isRegistered((Object) subscriber));
+        bus.dispatch(new SelectTextEvent("dismissAllPop"));
+        assertEquals(1, subscriber.count);
+    }
+
+    /**
+     * 之前的写法，用 @Subscribe 方法接收
+     */
+    public static class LegacySubscriber {
+        int count;
+
+        @org.greenrobot.eventbus.Subscribe(threadMode = org.greenrobot.eventbus.ThreadMode.MAIN)
+        public void handleSelector(SelectTextEvent event) {
+            count++;
+        }
+    }
+
+    /**
+     * 注册不持有的订阅者
+     */
+    private void registerGarbage(int count) {
+        for (int i = 0; i < count; i++) {
+            bus.register(new CountingSubscriber(), SelectTextEvent.class);
+        }
+    }
+
+    /**
+     * 等到只剩下持有的订阅者
+     */
+    private void awaitCollected(int liveCount) throws InterruptedException {
+        for (int i = 0; i < 50 && bus.getSubscriberCount() > liveCount; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals("not collected", liveCount, bus.getSubscriberCount());
+    }
+}
@@ -0,0 +1,170 @@
+package com.xiaoguang.selecttext;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 操作弹窗两种实现的创建、测量、绘制耗时
+ * RecyclerView + GridLayoutManager（pop_operate）对比 SelectTextMenuView（pop_operate_menu）
+ * <p>
+ * 库模块的 androidTest 是可调试的，绝对值偏大，只比较两种实现的相对耗时：
+ * ./gradlew :selecttext:connectedAndroidTest
+ */
+@RunWith(AndroidJUnit4.class)
+public class SelectTextMenuBenchmark {
+
+    private static final int SPAN_COUNT = 5;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private List<SelectTextMenuItem> mItems;
+    private int mWidthSpec;
+    private int mHeightSpec;
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        // 和 demo 一样 7 个按钮，两行
+        int[] texts = {android.R.string.copy, android.R.string.selectAll, android.R.string.cut,
+                android.R.string.paste, android.R.string.search_go, android.R.string.ok, android.R.string.cancel};
+        int[] icons = {android.R.drawable.ic_menu_edit, android.R.drawable.ic_menu_agenda,
+                android.R.drawable.ic_menu_delete, android.R.drawable.ic_menu_add,
+                android.R.drawable.ic_menu_search, android.R.drawable.ic_menu_save,
+                android.R.drawable.ic_menu_close_clear_cancel};
+        mItems = new ArrayList<>();
+        for (int i = 0; i < texts.length; i++) {
+            mItems.add(new SelectTextMenuItem(texts[i], i, icons[i], mContext.getString(texts[i])));
+        }
+        mWidthSpec = View.MeasureSpec.makeMeasureSpec(
+                mContext.getResources().getDisplayMetrics().widthPixels, View.MeasureSpec.AT_MOST);
+        mHeightSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+    }
+
+    /**
+     * inflate 并设置好 item，和 OperateWindow 构造时一样
+     */
+    private View createRecyclerViewMenu() {
+        View contentView = LayoutInflater.from(mContext).inflate(R.layout.pop_operate, null);
+        RecyclerView recyclerView = contentView.findViewById(R.id.rv_content);
+        recyclerView.setLayoutManager(new GridLayoutManager(mContext,
+                Math.min(mItems.size(), SPAN_COUNT), GridLayoutManager.VERTICAL, false));
+        recyclerView.setAdapter(new SelectTextPopAdapter(mContext, mItems));
+        return contentView;
+    }
+
+    private View createLightweightMenu() {
+        View contentView = LayoutInflater.from(mContext).inflate(R.layout.pop_operate_menu, null);
+        SelectTextMenuView menuView = contentView.findViewById(R.id.menu_content);
+        menuView.setItems(mItems);
+        menuView.setSpanCount(SPAN_COUNT);
+        return contentView;
+    }
+
+    private void measureAndLayout(View contentView) {
+        contentView.measure(mWidthSpec, mHeightSpec);
+        contentView.layout(0, 0, contentView.getMeasuredWidth(), contentView.getMeasuredHeight());
+    }
+
+    /**
+     * 清除测量缓存，下一次 measure 重新计算整棵树
+     */
+    private static void forceLayoutTree(View view) {
+        view.forceLayout();
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                forceLayoutTree(group.getChildAt(i));
+            }
+        }
+    }
+
+    private void benchmarkCreate(boolean lightweight) {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            View contentView = lightweight ? createLightweightMenu() : createRecyclerViewMenu();
+            // 第一次显示前要完成的布局也算在创建里
+            measureAndLayout(contentView);
+        }
+    }
+
+    private void benchmarkMeasure(boolean lightweight) {
+        View contentView = lightweight ? createLightweightMenu() : createRecyclerViewMenu();
+        measureAndLayout(contentView);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            forceLayoutTree(contentView);
+            measureAndLayout(contentView);
+        }
+    }
+
+    private void benchmarkDraw(boolean lightweight) {
+        View contentView = lightweight ? createLightweightMenu() : createRecyclerViewMenu();
+        measureAndLayout(contentView);
+        Bitmap bitmap = Bitmap.createBitmap(Math.max(1, contentView.getWidth()),
+                Math.max(1, contentView.getHeight()), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            contentView.draw(canvas);
+        }
+        bitmap.recycle();
+    }
+
+    @Test
+    @UiThreadTest
+    public void recyclerViewMenu_create() {
+        benchmarkCreate(false);
+    }
+
+    @Test
+    @UiThreadTest
+    public void lightweightMenu_create() {
+        benchmarkCreate(true);
+    }
+
+    @Test
+    @UiThreadTest
+    public void recyclerViewMenu_measure() {
+        benchmarkMeasure(false);
+    }
+
+    @Test
+    @UiThreadTest
+    public void lightweightMenu_measure() {
+        benchmarkMeasure(true);
+    }
+
+    @Test
+    @UiThreadTest
+    public void recyclerViewMenu_draw() {
+        benchmarkDraw(false);
+    }
+
+    @Test
+    @UiThreadTest
+    public void lightweightMenu_draw() {
+        benchmarkDraw(true);
+    }
+}
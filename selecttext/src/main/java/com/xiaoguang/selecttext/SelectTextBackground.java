@@ -0,0 +1,40 @@
+package com.xiaoguang.selecttext;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 后台线程
+ * <p>
+ * 链接识别、文本预计算共用一个低优先级的后台线程，结果通过主线程 Handler 送回。
+ */
+final class SelectTextBackground {
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static ExecutorService sExecutor;
+
+    private SelectTextBackground() {
+    }
+
+    static synchronized ExecutorService executor() {
+        if (null == sExecutor) {
+            sExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "SelectTextBackground");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sExecutor;
+    }
+
+    static void post(Runnable runnable) {
+        sMainHandler.post(runnable);
+    }
+}
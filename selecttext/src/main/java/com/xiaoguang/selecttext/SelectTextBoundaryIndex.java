@@ -0,0 +1,149 @@
+package com.xiaoguang.selecttext;
+
+import android.widget.TextView;
+
+import java.text.BreakIterator;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * 文本的词、句、段边界索引
+ * <p>
+ * 每个文本只用 BreakIterator 计算一次所有边界，按粒度懒加载，
+ * 之后的查询都是对有序数组二分查找，拖动游标时不再调用 BreakIterator。
+ * TextView 的文本变化后，下一次 {@link #obtain(TextView)} 自动重建。
+ */
+public final class SelectTextBoundaryIndex {
+
+    private final CharSequence mText;
+    private final int mTextLength;
+    private String mString;// BreakIterator 只接受 String，只生成一次
+
+    private int[] mWordBoundaries;
+    private int[] mSentenceBoundaries;
+    private int[] mParagraphBoundaries;
+
+    public static SelectTextBoundaryIndex obtain(TextView textView) {
+        CharSequence text = textView.getText();
+        Object tag = textView.getTag(R.id.select_text_boundary_index);
+        if (tag instanceof SelectTextBoundaryIndex) {
+            SelectTextBoundaryIndex index = (SelectTextBoundaryIndex) tag;
+            if (index.mText == text && index.mTextLength == text.length()) {
+                return index;
+            }
+        }
+        SelectTextBoundaryIndex index = new SelectTextBoundaryIndex(text);
+        textView.setTag(R.id.select_text_boundary_index, index);
+        return index;
+    }
+
+    private SelectTextBoundaryIndex(CharSequence text) {
+        mText = text;
+        mTextLength = text.length();
+    }
+
+    /**
+     * offset 所在的单元 [start, end)
+     * 字符粒度或找不到时返回 null
+     */
+    public int[] getRange(int granularity, int offset) {
+        int[] boundaries = getBoundaries(granularity);
+        if (null == boundaries || boundaries.length < 2) {
+            return null;
+        }
+        int index = floorIndex(boundaries, offset);
+        if (index < 0 || index >= boundaries.length - 1) {
+            return null;
+        }
+        return new int[]{boundaries[index], boundaries[index + 1]};
+    }
+
+    /**
+     * 离 offset 最近的边界
+     * 字符粒度直接返回 offset
+     */
+    public int snap(int granularity, int offset) {
+        int[] boundaries = getBoundaries(granularity);
+        if (null == boundaries || boundaries.length == 0) {
+            return offset;
+        }
+        int index = floorIndex(boundaries, offset);
+        if (index < 0) {
+            return boundaries[0];
+        }
+        if (index == boundaries.length - 1) {
+            return boundaries[index];
+        }
+        int floor = boundaries[index];
+        int ceil = boundaries[index + 1];
+        return offset - floor <= ceil - offset ? floor : ceil;
+    }
+
+    /**
+     * 最后一个 <= offset 的边界下标
+     */
+    private static int floorIndex(int[] boundaries, int offset) {
+        int index = Arrays.binarySearch(boundaries, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int[] getBoundaries(int granularity) {
+        switch (granularity) {
+            case SelectTextHelper.GRANULARITY_WORD:
+                if (null == mWordBoundaries) {
+                    mWordBoundaries = computeBoundaries(BreakIterator.getWordInstance(Locale.getDefault()));
+                }
+                return mWordBoundaries;
+            case SelectTextHelper.GRANULARITY_SENTENCE:
+                if (null == mSentenceBoundaries) {
+                    mSentenceBoundaries = computeBoundaries(BreakIterator.getSentenceInstance(Locale.getDefault()));
+                }
+                return mSentenceBoundaries;
+            case SelectTextHelper.GRANULARITY_PARAGRAPH:
+                if (null == mParagraphBoundaries) {
+                    mParagraphBoundaries = computeParagraphBoundaries();
+                }
+                return mParagraphBoundaries;
+            case SelectTextHelper.GRANULARITY_CHARACTER:
+            default:
+                return null;
+        }
+    }
+
+    private int[] computeBoundaries(BreakIterator iterator) {
+        if (null == mString) {
+            mString = mText.toString();
+        }
+        iterator.setText(mString);
+        int[] boundaries = new int[16];
+        int count = 0;
+        for (int boundary = iterator.first(); boundary != BreakIterator.DONE; boundary = iterator.next()) {
+            if (count == boundaries.length) {
+                boundaries = Arrays.copyOf(boundaries, count * 2);
+            }
+            boundaries[count++] = boundary;
+        }
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    private int[] computeParagraphBoundaries() {
+        int[] boundaries = new int[8];
+        int count = 0;
+        boundaries[count++] = 0;
+        for (int i = 0; i < mTextLength; i++) {
+            if (mText.charAt(i) == '\n' && i + 1 < mTextLength) {
+                if (count == boundaries.length) {
+                    boundaries = Arrays.copyOf(boundaries, count * 2);
+                }
+                boundaries[count++] = i + 1;
+            }
+        }
+        if (count == boundaries.length) {
+            boundaries = Arrays.copyOf(boundaries, count + 1);
+        }
+        if (mTextLength > 0) {
+            boundaries[count++] = mTextLength;
+        }
+        return Arrays.copyOf(boundaries, count);
+    }
+}
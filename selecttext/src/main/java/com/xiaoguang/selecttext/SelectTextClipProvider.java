@@ -0,0 +1,319 @@
+package com.xiaoguang.selecttext;
+
+import android.content.ClipDescription;
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * 大段复制的内容
+ * <p>
+ * 只保存最近一次复制的文本快照，粘贴的应用读取时通过管道按块写出 UTF-8，
+ * 不生成完整的 String。不导出，读取权限由剪贴板授予粘贴的应用。
+ * 快照同时在后台线程写到 cache 目录的文件里，写完后释放内存中的快照、从文件读取；
+ * 复制后切到别的应用粘贴时进程被回收了，也能从文件读到内容，不会粘贴出 uri。
+ */
+public class SelectTextClipProvider extends ContentProvider {
+
+    private static final String AUTHORITY_SUFFIX = ".selecttext.clip";
+    private static final String MIME_TYPE = ClipDescription.MIMETYPE_TEXT_PLAIN;
+    private static final String DISPLAY_NAME = "text.txt";
+    private static final int BUFFER_SIZE = 8192;// 每次写出的字数
+    private static final String CACHE_DIR = "selecttext_clip";
+    private static final Pattern TOKEN = Pattern.compile("[0-9a-f-]{36}");// UUID，不能包含路径
+
+    private static volatile Clip sClip;
+
+    private static final class Clip {
+        final String token;
+        volatile SelectTextClipText text;// 写完文件后置为 null
+        volatile long size = -1;// UTF-8 字节数，第一次 query 或写完文件时计算
+
+        Clip(String token, SelectTextClipText text) {
+            this.token = token;
+            this.text = text;
+        }
+
+        long getSize() {
+            SelectTextClipText current = text;
+            if (size < 0 && null != current) {
+                size = utf8Length(current);
+            }
+            return size;
+        }
+    }
+
+    /**
+     * 替换成新的内容，之前的 uri 失效
+     * text 是不可变的快照，不引用页面，可以在后台线程读取
+     */
+    static Uri publish(Context context, SelectTextClipText text) {
+        String token = UUID.randomUUID().toString();
+        final Clip clip = new Clip(token, text);
+        sClip = clip;
+        final File dir = new File(context.getCacheDir(), CACHE_DIR);
+        SelectTextBackground.executor().execute(() -> save(dir, clip));
+        return new Uri.Builder()
+                .scheme(ContentResolver.SCHEME_CONTENT)
+                .authority(context.getPackageName() + AUTHORITY_SUFFIX)
+                .appendPath(token)
+                .build();
+    }
+
+    /**
+     * 后台线程写到文件，先写临时文件再改名，读到的文件总是完整的
+     * 写完后删除之前复制的文件
+     */
+    private static void save(File dir, Clip clip) {
+        SelectTextClipText text = clip.text;
+        // 已经被新的内容替换
+        if (null == text || sClip != clip) {
+            return;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        File temp = new File(dir, clip.token + ".tmp");
+        File file = new File(dir, clip.token);
+        boolean saved = false;
+        OutputStream output = null;
+        try {
+            output = new FileOutputStream(temp);
+            writeUtf8(text, output);
+            saved = true;
+        } catch (IOException ignored) {
+            // 空间不足等，仍然从内存读取
+        } finally {
+            if (null != output) {
+                try {
+                    output.close();
+                } catch (IOException ignored) {
+                    saved = false;
+                }
+            }
+        }
+        if (saved && temp.renameTo(file)) {
+            clip.size = file.length();
+            clip.text = null;
+        } else {
+            temp.delete();
+        }
+        File[] files = dir.listFiles();
+        if (null == files) {
+            return;
+        }
+        for (File old : files) {
+            if (sClip == clip && !old.getName().equals(clip.token)) {
+                old.delete();
+            }
+        }
+    }
+
+    private static Clip findClip(Uri uri) {
+        Clip clip = sClip;
+        if (null != clip && clip.token.equals(uri.getLastPathSegment())) {
+            return clip;
+        }
+        return null;
+    }
+
+    /**
+     * 还在内存里的快照
+     */
+    private static CharSequence findText(Uri uri) {
+        Clip clip = findClip(uri);
+        return null == clip ? null : clip.text;
+    }
+
+    /**
+     * 已经写完的文件，进程重启后 sClip 为空时也能找到
+     */
+    @Nullable
+    private File findFile(Uri uri) {
+        Context context = getContext();
+        String token = uri.getLastPathSegment();
+        if (null == context || null == token || !TOKEN.matcher(token).matches()) {
+            return null;
+        }
+        File file = new File(new File(context.getCacheDir(), CACHE_DIR), token);
+        return file.isFile() ? file : null;
+    }
+
+    private boolean exists(Uri uri) {
+        return null != findText(uri) || null != findFile(uri);
+    }
+
+    /**
+     * 按 UTF-8 编码的字节数，代理对算 4 个字节，单独的代理字符按 '?' 算 1 个字节
+     */
+    static long utf8Length(CharSequence text) {
+        long size = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else if (c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE) {
+                size += 1;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return exists(uri) ? MIME_TYPE : null;
+    }
+
+    @Nullable
+    @Override
+    public String[] getStreamTypes(@NonNull Uri uri, @NonNull String mimeTypeFilter) {
+        if (exists(uri) && ClipDescription.compareMimeTypes(MIME_TYPE, mimeTypeFilter)) {
+            return new String[]{MIME_TYPE};
+        }
+        return null;
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Uri uri, @Nullable String[] projection, @Nullable String selection,
+                        @Nullable String[] selectionArgs, @Nullable String sortOrder) {
+        Clip clip = findClip(uri);
+        long size = null == clip ? -1 : clip.getSize();
+        if (size < 0) {
+            File file = findFile(uri);
+            if (null == file) {
+                return null;
+            }
+            size = file.length();
+        }
+        String[] columns = null == projection
+                ? new String[]{OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE} : projection;
+        MatrixCursor cursor = new MatrixCursor(columns, 1);
+        Object[] row = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (OpenableColumns.DISPLAY_NAME.equals(columns[i])) {
+                row[i] = DISPLAY_NAME;
+            } else if (OpenableColumns.SIZE.equals(columns[i])) {
+                row[i] = size;
+            }
+        }
+        cursor.addRow(row);
+        return cursor;
+    }
+
+    @Nullable
+    @Override
+    public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
+        if (!"r".equals(mode)) {
+            throw new FileNotFoundException("Read only: " + uri);
+        }
+        CharSequence text = findText(uri);
+        if (null != text) {
+            return openPipeHelper(uri, MIME_TYPE, null, text, mWriter);
+        }
+        File file = findFile(uri);
+        if (null == file) {
+            throw new FileNotFoundException("Expired: " + uri);
+        }
+        return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    @Nullable
+    @Override
+    public AssetFileDescriptor openTypedAssetFile(@NonNull Uri uri, @NonNull String mimeTypeFilter,
+                                                  @Nullable Bundle opts) throws FileNotFoundException {
+        if (ClipDescription.compareMimeTypes(MIME_TYPE, mimeTypeFilter)) {
+            return new AssetFileDescriptor(openFile(uri, "r"), 0, AssetFileDescriptor.UNKNOWN_LENGTH);
+        }
+        return super.openTypedAssetFile(uri, mimeTypeFilter, opts);
+    }
+
+    /**
+     * 用一个 char[] 按块拷贝成 UTF-8，不关闭 output
+     */
+    private static void writeUtf8(CharSequence text, OutputStream output) throws IOException {
+        Writer writer = new OutputStreamWriter(output, "UTF-8");
+        char[] buffer = new char[BUFFER_SIZE];
+        int length = text.length();
+        for (int start = 0; start < length; start += BUFFER_SIZE) {
+            int end = Math.min(start + BUFFER_SIZE, length);
+            TextUtils.getChars(text, start, end, buffer, 0);
+            writer.write(buffer, 0, end - start);
+        }
+        writer.flush();
+    }
+
+    /**
+     * 还没写完文件时从内存读取，读取方关闭管道时停止
+     */
+    private final PipeDataWriter<CharSequence> mWriter = (output, uri, mimeType, opts, text) -> {
+        OutputStream stream = null;
+        try {
+            stream = new FileOutputStream(output.getFileDescriptor());
+            writeUtf8(text, stream);
+        } catch (IOException ignored) {
+            // 读取方提前关闭
+        } finally {
+            if (null != stream) {
+                try {
+                    stream.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    };
+
+    @Nullable
+    @Override
+    public Uri insert(@NonNull Uri uri, @Nullable ContentValues values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, @Nullable String selection, @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, @Nullable ContentValues values, @Nullable String selection,
+                      @Nullable String[] selectionArgs) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,94 @@
+package com.xiaoguang.selecttext;
+
+import android.text.GetChars;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * 复制到剪贴板的文本快照
+ * <p>
+ * 只保存各条目的 String 和两端的 offset，不引用 Source、适配器和 View，
+ * 不可修改，可以在粘贴时的后台线程读取。String 本身不可变，保存引用不拷贝。
+ */
+final class SelectTextClipText implements CharSequence, GetChars {
+
+    private final String[] mTexts;
+    private final int[] mStarts;// 每个片段在自己 String 里的开始位置
+    private final int[] mOffsets;// 每个片段在整个文本里的开始位置，最后一个是总长度
+
+    SelectTextClipText(String[] texts, int[] starts, int[] ends) {
+        mTexts = texts;
+        mStarts = starts;
+        mOffsets = new int[texts.length + 1];
+        for (int i = 0; i < texts.length; i++) {
+            mOffsets[i + 1] = mOffsets[i] + ends[i] - starts[i];
+        }
+    }
+
+    static SelectTextClipText of(CharSequence text) {
+        if (text instanceof SelectTextClipText) {
+            return (SelectTextClipText) text;
+        }
+        if (text instanceof SelectTextCrossText) {
+            return ((SelectTextCrossText) text).snapshot();
+        }
+        String string = text.toString();
+        return new SelectTextClipText(new String[]{string}, new int[]{0}, new int[]{string.length()});
+    }
+
+    @Override
+    public int length() {
+        return mOffsets[mTexts.length];
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        int i = segmentOf(index);
+        return mTexts[i].charAt(mStarts[i] + index - mOffsets[i]);
+    }
+
+    @Override
+    public void getChars(int start, int end, char[] dest, int destoff) {
+        if (start < 0 || end < start || end > length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        for (int i = start < end ? segmentOf(start) : mTexts.length; i < mTexts.length && mOffsets[i] < end; i++) {
+            int copyStart = Math.max(start, mOffsets[i]);
+            int copyEnd = Math.min(end, mOffsets[i + 1]);
+            int from = mStarts[i] + copyStart - mOffsets[i];
+            mTexts[i].getChars(from, from + copyEnd - copyStart, dest, destoff + copyStart - start);
+        }
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        char[] chars = new char[end - start];
+        getChars(start, end, chars, 0);
+        return new String(chars);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return subSequence(0, length()).toString();
+    }
+
+    /**
+     * index 所在的片段，跳过空片段
+     */
+    private int segmentOf(int index) {
+        int i = Arrays.binarySearch(mOffsets, index);
+        if (i < 0) {
+            return -i - 2;
+        }
+        while (i < mTexts.length - 1 && mOffsets[i + 1] == index) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,45 @@
+package com.xiaoguang.selecttext;
+
+import android.content.ClipData;
+import android.content.ClipDescription;
+import android.content.ClipboardManager;
+import android.content.Context;
+import android.net.Uri;
+
+/**
+ * 复制到剪贴板
+ * <p>
+ * 短文本直接放进 ClipData；长文本放一个 {@link SelectTextClipProvider} 的 uri，
+ * 粘贴时才按块读取，避免 Binder 传输过大（TransactionTooLargeException）。
+ * 复制时保存不可变的快照，之后选区、列表数据变化或者页面关闭都不影响粘贴的内容。
+ */
+public final class SelectTextClipboard {
+
+    static final int INLINE_MAX_LENGTH = 32 * 1024;// 超过这个字数用 uri
+
+    private SelectTextClipboard() {
+    }
+
+    /**
+     * 主线程调用
+     *
+     * @param text 跨条目选择的文本只拷贝各条目 String 的引用，不拼接
+     */
+    public static void copy(Context context, CharSequence text) {
+        ClipboardManager cm = (ClipboardManager) context.getSystemService(Context.CLIPBOARD_SERVICE);
+        if (null == cm || null == text) {
+            return;
+        }
+        ClipData clip;
+        if (text.length() <= INLINE_MAX_LENGTH) {
+            // 不再把内容重复放到 label 里
+            clip = ClipData.newPlainText(null, text.toString());
+        } else {
+            Uri uri = SelectTextClipProvider.publish(context.getApplicationContext(),
+                    SelectTextClipText.of(text));
+            clip = new ClipData(new ClipDescription(null, new String[]{ClipDescription.MIMETYPE_TEXT_PLAIN}),
+                    new ClipData.Item(uri));
+        }
+        cm.setPrimaryClip(clip);
+    }
+}
@@ -0,0 +1,812 @@
+package com.xiaoguang.selecttext;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.text.Spannable;
+import android.text.Spanned;
+import android.text.style.BackgroundColorSpan;
+import android.view.Gravity;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.PopupWindow;
+import android.widget.TextView;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.StringRes;
+import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 跨条目选择文本
+ * <p>
+ * 选区的两端分别记录为（条目位置, 条目内 offset），可以从一个条目开始、在另一个条目结束。
+ * 只有屏幕上的条目才会高亮，新显示的条目 attach 时按选区补上。
+ * 高亮和 SelectTextHelper 一样用 SelectTextHighlightDrawable 画在每个 TextView 的 ViewOverlay 上，
+ * attach 时不修改文本，不会重新布局；Android 4.3 以下没有 ViewOverlay，仍用 BackgroundColorSpan。
+ * 游标拖动、命中测试和 SelectTextHelper 一样使用 SelectTextLayoutIndex，拖到列表边缘时自动滚动。
+ * 选中的文本只在 {@link #getSelectedText()} 的结果被读取时才拼接。
+ */
+public class SelectTextCrossController {
+
+    private static final int AUTO_SCROLL_EDGE_DP = 48;// 拖动游标时自动滚动的边缘区域
+    private static final int AUTO_SCROLL_STEP_DP = 12;// 每帧自动滚动的距离
+
+    /**
+     * 条目的文本和 TextView
+     */
+    public interface Source {
+        /**
+         * 条目的文本，不能选择的条目返回 null
+         */
+        CharSequence getText(int position);
+
+        /**
+         * 条目里显示文本的 TextView，没有时返回 null
+         */
+        TextView getTextView(RecyclerView.ViewHolder holder);
+
+        /**
+         * 拼接选中文本时 position 和下一个条目之间的分隔
+         */
+        default CharSequence getSeparator(int position) {
+            return "\n";
+        }
+    }
+
+    public interface OnSelectListener {
+        /**
+         * 选区变化
+         */
+        void onSelectionChanged(int startPosition, int startOffset, int endPosition, int endOffset);
+
+        void onReset();
+    }
+
+    public static class Builder {
+        private final RecyclerView mRecyclerView;
+        private final Source mSource;
+        private int mSelectedColor = 0xFFAFE1F4;
+        private int mCursorHandleColor = 0xFF1379D6;
+        private float mCursorHandleSizeInDp = 24;
+        private int mPopSpanCount = 5;
+        private final List<SelectTextMenuItem> itemTextList = new ArrayList<>();
+        private final List<SelectTextHelper.Builder.onSeparateItemClickListener> itemListenerList = new ArrayList<>();
+
+        public Builder(RecyclerView recyclerView, Source source) {
+            mRecyclerView = recyclerView;
+            mSource = source;
+        }
+
+        public Builder setSelectedColor(@ColorInt int color) {
+            mSelectedColor = color;
+            return this;
+        }
+
+        public Builder setCursorHandleColor(@ColorInt int cursorHandleColor) {
+            mCursorHandleColor = cursorHandleColor;
+            return this;
+        }
+
+        public Builder setCursorHandleSizeInDp(float cursorHandleSizeInDp) {
+            mCursorHandleSizeInDp = cursorHandleSizeInDp;
+            return this;
+        }
+
+        public Builder setPopSpanCount(int popSpanCount) {
+            mPopSpanCount = popSpanCount;
+            return this;
+        }
+
+        public Builder addItem(@DrawableRes int drawableId, @StringRes int textResId,
+                               SelectTextHelper.Builder.onSeparateItemClickListener listener) {
+            itemTextList.add(new SelectTextMenuItem(textResId, itemTextList.size(), drawableId,
+                    mRecyclerView.getContext().getResources().getString(textResId)));
+            itemListenerList.add(listener);
+            return this;
+        }
+
+        public SelectTextCrossController build() {
+            return new SelectTextCrossController(this);
+        }
+    }
+
+    private final RecyclerView mRecyclerView;
+    private final Context mContext;
+    private final Source mSource;
+
+    private final int mSelectedColor;
+    private final int mCursorHandleColor;
+    private final int mCursorHandleSize;
+    private final int mPopSpanCount;
+    private final List<SelectTextMenuItem> itemTextList;
+    private final List<SelectTextHelper.Builder.onSeparateItemClickListener> itemListenerList;
+
+    // 选区两端
+    private int mStartPosition;
+    private int mStartOffset;
+    private int mEndPosition;
+    private int mEndOffset;
+    private boolean mSelected;
+
+    private CursorHandle mStartHandle;
+    private CursorHandle mEndHandle;
+    private OperateWindow mOperateWindow;
+    private OnSelectListener mSelectListener;
+
+    private final int[] mTempCoors = new int[2];
+    private final RecyclerView.Adapter<?> mAdapter;
+
+    private SelectTextCrossController(Builder builder) {
+        mRecyclerView = builder.mRecyclerView;
+        mContext = mRecyclerView.getContext();
+        mSource = builder.mSource;
+        mSelectedColor = builder.mSelectedColor;
+        mCursorHandleColor = builder.mCursorHandleColor;
+        mCursorHandleSize = SelectTextMetrics.obtain(mContext).dp2px(builder.mCursorHandleSizeInDp);
+        mPopSpanCount = builder.mPopSpanCount;
+        itemTextList = builder.itemTextList;
+        itemListenerList = builder.itemListenerList;
+
+        mRecyclerView.addOnScrollListener(mScrollListener);
+        mRecyclerView.addOnChildAttachStateChangeListener(mChildAttachListener);
+        mAdapter = mRecyclerView.getAdapter();
+        if (null != mAdapter) {
+            mAdapter.registerAdapterDataObserver(mDataObserver);
+        }
+    }
+
+    /**
+     * public start
+     */
+
+    public void setSelectListener(OnSelectListener selectListener) {
+        mSelectListener = selectListener;
+    }
+
+    public boolean isSelected() {
+        return mSelected;
+    }
+
+    public boolean isPopShowing() {
+        return null != mOperateWindow && mOperateWindow.isShowing();
+    }
+
+    public int getStartPosition() {
+        return mStartPosition;
+    }
+
+    public int getStartOffset() {
+        return mStartOffset;
+    }
+
+    public int getEndPosition() {
+        return mEndPosition;
+    }
+
+    public int getEndOffset() {
+        return mEndOffset;
+    }
+
+    /**
+     * 选中的文本
+     * 只记录了两端，读取时才从各个条目拼接；没有选择时返回空字符串
+     */
+    public CharSequence getSelectedText() {
+        if (!mSelected) {
+            return "";
+        }
+        return new SelectTextCrossText(mSource, mStartPosition, mStartOffset, mEndPosition, mEndOffset);
+    }
+
+    /**
+     * 选中一段，可以跨条目
+     */
+    public void select(int startPosition, int startOffset, int endPosition, int endOffset) {
+        hideSelectView();
+        setSelection(startPosition, startOffset, endPosition, endOffset);
+        showCursorHandles();
+        showOperateWindow();
+    }
+
+    /**
+     * 选中整个条目，拖动游标可以扩展到其他条目
+     */
+    public void select(int position) {
+        CharSequence text = mSource.getText(position);
+        if (null != text) {
+            select(position, 0, position, text.length());
+        }
+    }
+
+    /**
+     * 取消选择
+     */
+    public void reset() {
+        hideSelectView();
+        boolean selected = mSelected;
+        mSelected = false;
+        applyHighlights();
+        if (selected && null != mSelectListener) {
+            mSelectListener.onReset();
+        }
+    }
+
+    /**
+     * 销毁
+     */
+    public void destroy() {
+        reset();
+        removeHighlights();
+        mRecyclerView.removeOnScrollListener(mScrollListener);
+        mRecyclerView.removeOnChildAttachStateChangeListener(mChildAttachListener);
+        if (null != mAdapter) {
+            mAdapter.unregisterAdapterDataObserver(mDataObserver);
+        }
+        mRecyclerView.removeCallbacks(mAutoScrollRunnable);
+        if (null != mOperateWindow) {
+            mOperateWindow.recycle();
+            mOperateWindow = null;
+        }
+        mStartHandle = null;
+        mEndHandle = null;
+    }
+
+    /**
+     * public end
+     */
+
+    private static int compare(int position, int offset, int otherPosition, int otherOffset) {
+        if (position != otherPosition) {
+            return position < otherPosition ? -1 : 1;
+        }
+        return offset == otherOffset ? 0 : (offset < otherOffset ? -1 : 1);
+    }
+
+    private void setSelection(int startPosition, int startOffset, int endPosition, int endOffset) {
+        if (compare(startPosition, startOffset, endPosition, endOffset) > 0) {
+            mStartPosition = endPosition;
+            mStartOffset = endOffset;
+            mEndPosition = startPosition;
+            mEndOffset = startOffset;
+        } else {
+            mStartPosition = startPosition;
+            mStartOffset = startOffset;
+            mEndPosition = endPosition;
+            mEndOffset = endOffset;
+        }
+        mSelected = true;
+        applyHighlights();
+        if (null != mSelectListener) {
+            mSelectListener.onSelectionChanged(mStartPosition, mStartOffset, mEndPosition, mEndOffset);
+        }
+    }
+
+    /**
+     * 只更新当前显示的条目，其余的在 attach 时处理
+     */
+    private void applyHighlights() {
+        for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+            applyHighlight(mRecyclerView.getChildViewHolder(mRecyclerView.getChildAt(i)));
+        }
+    }
+
+    private void applyHighlight(RecyclerView.ViewHolder holder) {
+        int position = null == holder ? RecyclerView.NO_POSITION : holder.getAdapterPosition();
+        TextView textView = position == RecyclerView.NO_POSITION ? null : mSource.getTextView(holder);
+        if (null == textView) {
+            return;
+        }
+        boolean inSelection = mSelected && position >= mStartPosition && position <= mEndPosition;
+        int length = textView.getText().length();
+        int start = position == mStartPosition ? mStartOffset : 0;
+        int end = position == mEndPosition ? mEndOffset : length;
+        end = Math.min(end, length);
+        if (!inSelection || start >= end) {
+            start = 0;
+            end = 0;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            applyOverlayHighlight(textView, start, end);
+        } else {
+            applySpanHighlight(textView, start, end);
+        }
+    }
+
+    /**
+     * 每个 TextView 一个高亮，复用的 ViewHolder 也复用
+     */
+    private void applyOverlayHighlight(TextView textView, int start, int end) {
+        Object tag = textView.getTag(R.id.select_text_chunk_span);
+        SelectTextHighlightDrawable highlight;
+        if (tag instanceof SelectTextHighlightDrawable) {
+            highlight = (SelectTextHighlightDrawable) tag;
+        } else {
+            if (start == end) {
+                return;
+            }
+            highlight = new SelectTextHighlightDrawable(textView, mSelectedColor);
+            textView.getOverlay().add(highlight);
+            textView.setTag(R.id.select_text_chunk_span, highlight);
+        }
+        highlight.setSelection(start, end);
+    }
+
+    private void applySpanHighlight(TextView textView, int start, int end) {
+        Object tag = textView.getTag(R.id.select_text_chunk_span);
+        CharSequence text = textView.getText();
+        if (!(text instanceof Spannable)) {
+            if (start == end) {
+                return;
+            }
+            // 第一次高亮时才转换
+            textView.setText(text, TextView.BufferType.SPANNABLE);
+            text = textView.getText();
+        }
+        BackgroundColorSpan span;
+        if (tag instanceof BackgroundColorSpan) {
+            span = (BackgroundColorSpan) tag;
+        } else {
+            span = new BackgroundColorSpan(mSelectedColor);
+            textView.setTag(R.id.select_text_chunk_span, span);
+        }
+        if (start < end) {
+            // 已存在的span再次setSpan只会移动位置
+            ((Spannable) text).setSpan(span, start, end, Spanned.SPAN_INCLUSIVE_EXCLUSIVE);
+        } else {
+            ((Spannable) text).removeSpan(span);
+        }
+    }
+
+    /**
+     * 移除当前显示的条目上的高亮
+     */
+    private void removeHighlights() {
+        for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+            RecyclerView.ViewHolder holder = mRecyclerView.getChildViewHolder(mRecyclerView.getChildAt(i));
+            TextView textView = null == holder ? null : mSource.getTextView(holder);
+            if (null == textView) {
+                continue;
+            }
+            Object tag = textView.getTag(R.id.select_text_chunk_span);
+            if (tag instanceof SelectTextHighlightDrawable
+                    && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                textView.getOverlay().remove((SelectTextHighlightDrawable) tag);
+                textView.setTag(R.id.select_text_chunk_span, null);
+            }
+        }
+    }
+
+    /**
+     * 条目当前显示的 TextView，不在屏幕上时返回 null
+     */
+    private TextView findTextView(int position) {
+        RecyclerView.ViewHolder holder = mRecyclerView.findViewHolderForAdapterPosition(position);
+        return null == holder ? null : mSource.getTextView(holder);
+    }
+
+    private void hideSelectView() {
+        if (null != mStartHandle) {
+            mStartHandle.dismiss();
+        }
+        if (null != mEndHandle) {
+            mEndHandle.dismiss();
+        }
+        if (null != mOperateWindow) {
+            mOperateWindow.dismiss();
+        }
+    }
+
+    private void showCursorHandles() {
+        if (null == mStartHandle) mStartHandle = new CursorHandle(true);
+        if (null == mEndHandle) mEndHandle = new CursorHandle(false);
+        mStartHandle.update();
+        mEndHandle.update();
+    }
+
+    private void showOperateWindow() {
+        if (itemTextList.isEmpty()) {
+            return;
+        }
+        if (null == mOperateWindow) {
+            mOperateWindow = new OperateWindow();
+        }
+        mOperateWindow.show();
+    }
+
+    private CursorHandle getCursorHandle(boolean isLeft) {
+        return mStartHandle.isLeft == isLeft ? mStartHandle : mEndHandle;
+    }
+
+    /**
+     * offset 所在行的位置，窗口坐标
+     *
+     * @param point [x, 行顶部, 行底部]
+     */
+    private boolean getLinePosition(TextView textView, int offset, int[] point) {
+        SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(textView);
+        if (null == index) return false;
+        int local = Math.max(0, Math.min(offset, textView.getText().length()));
+        int line = index.getLineForOffset(local);
+        textView.getLocationInWindow(mTempCoors);
+        point[0] = mTempCoors[0] + textView.getTotalPaddingLeft() + (int) index.getPrimaryHorizontal(local);
+        point[1] = mTempCoors[1] + textView.getTotalPaddingTop() + index.getLineTop(line);
+        point[2] = mTempCoors[1] + textView.getTotalPaddingTop() + index.getLineBottom(line);
+        return true;
+    }
+
+    private boolean isInList(int top, int bottom) {
+        mRecyclerView.getLocationInWindow(mTempCoors);
+        return top >= mTempCoors[1] && bottom <= mTempCoors[1] + mRecyclerView.getHeight();
+    }
+
+    private final RecyclerView.OnScrollListener mScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+            if (!mSelected || null != mDraggingHandle) {
+                return;
+            }
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                showOperateWindow();
+            } else if (null != mOperateWindow) {
+                mOperateWindow.dismiss();
+            }
+        }
+
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            // 游标跟随滚动，所在条目不可见时隐藏
+            if (mSelected && null != mStartHandle) {
+                mStartHandle.update();
+                mEndHandle.update();
+            }
+        }
+    };
+
+    private final RecyclerView.OnChildAttachStateChangeListener mChildAttachListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(@NonNull View view) {
+                    if (mSelected) {
+                        applyHighlight(mRecyclerView.getChildViewHolder(view));
+                    }
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(@NonNull View view) {
+                }
+            };
+
+    /**
+     * 条目增删后位置不再对应，选区作废
+     */
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            reset();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            reset();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            reset();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            reset();
+        }
+    };
+
+    /**
+     * 拖动游标到列表边缘时每帧滚动一次
+     */
+    private CursorHandle mDraggingHandle;
+    private int mAutoScrollDy;
+    private final Runnable mAutoScrollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (null == mDraggingHandle || 0 == mAutoScrollDy) {
+                return;
+            }
+            mRecyclerView.scrollBy(0, mAutoScrollDy);
+            mDraggingHandle.dragTo(mDraggingHandle.mLastRawX, mDraggingHandle.mLastRawY);
+            ViewCompat.postOnAnimation(mRecyclerView, this);
+        }
+    };
+
+    private void updateAutoScroll(int rawY) {
+        mRecyclerView.getLocationOnScreen(mTempCoors);
+        SelectTextMetrics metrics = SelectTextMetrics.obtain(mContext);
+        int edge = metrics.dp2px(AUTO_SCROLL_EDGE_DP);
+        int step = metrics.dp2px(AUTO_SCROLL_STEP_DP);
+        int dy = 0;
+        if (rawY < mTempCoors[1] + edge) {
+            dy = -step;
+        } else if (rawY > mTempCoors[1] + mRecyclerView.getHeight() - edge) {
+            dy = step;
+        }
+        boolean scrolling = 0 != mAutoScrollDy;
+        mAutoScrollDy = dy;
+        if (0 != dy && !scrolling) {
+            ViewCompat.postOnAnimation(mRecyclerView, mAutoScrollRunnable);
+        } else if (0 == dy) {
+            mRecyclerView.removeCallbacks(mAutoScrollRunnable);
+        }
+    }
+
+    private void stopAutoScroll() {
+        mAutoScrollDy = 0;
+        mRecyclerView.removeCallbacks(mAutoScrollRunnable);
+    }
+
+    /**
+     * 操作弹窗
+     * 显示在选区开始的行上面，开始行不可见时在结束行上面，都不可见时在列表中间
+     */
+    private class OperateWindow {
+
+        private final PopupWindow mWindow;
+        private final View contentView;
+        private final SelectTextMenuView mMenuView;
+        private final ImageView iv_arrow;
+        private final int[] mPoint = new int[3];
+        private final int mWidth;
+        private final int mHeight;
+
+        OperateWindow() {
+            contentView = SelectTextWindowPool.obtainOperateView(mContext, R.layout.pop_operate_menu, 0, 0);
+            iv_arrow = contentView.findViewById(R.id.iv_arrow);
+            mMenuView = contentView.findViewById(R.id.menu_content);
+            mMenuView.setItems(itemTextList);
+            mMenuView.setSpanCount(mPopSpanCount);
+            mMenuView.setOnclickItemListener(item -> {
+                dismiss();
+                // 按添加的顺序分发，id 相同的 item 不会混淆
+                int index = item.getIndex();
+                if (index >= 0 && index < itemListenerList.size()) {
+                    itemListenerList.get(index).onClick();
+                }
+            });
+            SelectTextMetrics metrics = SelectTextMetrics.obtain(mContext);
+            contentView.measure(
+                    View.MeasureSpec.makeMeasureSpec(metrics.getWidthPixels(), View.MeasureSpec.AT_MOST),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+            mWidth = contentView.getMeasuredWidth();
+            mHeight = contentView.getMeasuredHeight();
+            mWindow = new PopupWindow(contentView, mWidth, mHeight, false);
+            mWindow.setClippingEnabled(false);
+        }
+
+        void show() {
+            int anchorX;
+            int anchorY;
+            TextView startView = findTextView(mStartPosition);
+            TextView endView = findTextView(mEndPosition);
+            if (null != startView && getLinePosition(startView, mStartOffset, mPoint)
+                    && isInList(mPoint[1], mPoint[1])) {
+                anchorX = mPoint[0];
+                anchorY = mPoint[1];
+            } else if (null != endView && getLinePosition(endView, mEndOffset, mPoint)
+                    && isInList(mPoint[1], mPoint[1])) {
+                anchorX = mPoint[0];
+                anchorY = mPoint[1];
+            } else {
+                mRecyclerView.getLocationInWindow(mTempCoors);
+                anchorX = mTempCoors[0] + mRecyclerView.getWidth() / 2;
+                anchorY = mTempCoors[1] + mRecyclerView.getHeight() / 2;
+            }
+            SelectTextMetrics metrics = SelectTextMetrics.obtain(mContext);
+            int posX = Math.max(0, Math.min(anchorX - mWidth / 2, metrics.getWidthPixels() - mWidth));
+            // 限制在列表范围内，不盖住列表外的标题栏、输入框
+            mRecyclerView.getLocationInWindow(mTempCoors);
+            int posY = Math.max(mTempCoors[1],
+                    Math.min(anchorY - mHeight, mTempCoors[1] + mRecyclerView.getHeight() - mHeight));
+            posY = Math.max(0, posY);
+            int arrowMinX = metrics.dp2px(4);
+            int arrowTranslationX = Math.max(arrowMinX,
+                    Math.min(anchorX - posX - metrics.dp2px(16), mWidth - arrowMinX));
+            SelectTextHelper.setWindowHidden(mWindow, contentView, false);
+            if (mWindow.isShowing()) {
+                mWindow.update(posX, posY, -1, -1);
+            } else {
+                mWindow.showAtLocation(mRecyclerView, Gravity.NO_GRAVITY, posX, posY);
+            }
+            iv_arrow.setTranslationX(arrowTranslationX);
+        }
+
+        void dismiss() {
+            mWindow.dismiss();
+        }
+
+        boolean isShowing() {
+            return mWindow.isShowing();
+        }
+
+        void recycle() {
+            mWindow.dismiss();
+            mMenuView.setOnclickItemListener(null);
+            SelectTextWindowPool.recycleOperateView(mContext, R.layout.pop_operate_menu, 0, 0, contentView);
+        }
+    }
+
+    /**
+     * 游标
+     * 位置由选区的一端决定，所在条目不在屏幕上时隐藏
+     */
+    private class CursorHandle extends View {
+
+        private final PopupWindow mPopupWindow;
+        private Bitmap mHandleBitmap;
+        private final int mWidth = mCursorHandleSize;
+        private final int mHeight = mCursorHandleSize;
+        private final int mPadding = 32;// 游标padding
+        private boolean isLeft;
+
+        private int mAdjustX;
+        private int mAdjustY;
+        // 拖动时不动的另一端
+        private int mAnchorPosition;
+        private int mAnchorOffset;
+        private int mLastRawX;
+        private int mLastRawY;
+        private final int[] mCoors = new int[2];
+        private final int[] mPoint = new int[3];
+
+        CursorHandle(boolean isLeft) {
+            super(mContext);
+            this.isLeft = isLeft;
+            mHandleBitmap = SelectTextHandleCache.getHandle(mCursorHandleColor, mCursorHandleSize, isLeft);
+            // 内容只在换方向时变化，移动窗口时不重新绘制
+            setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            mPopupWindow = new PopupWindow(this);
+            mPopupWindow.setClippingEnabled(false);
+            mPopupWindow.setWidth(mWidth + mPadding * 2);
+            mPopupWindow.setHeight(mHeight + mPadding / 2);
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            canvas.drawBitmap(mHandleBitmap, mPadding, 0, null);
+        }
+
+        private void changeDirection() {
+            isLeft = !isLeft;
+            mHandleBitmap = SelectTextHandleCache.getHandle(mCursorHandleColor, mCursorHandleSize, isLeft);
+            invalidate();
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            switch (event.getAction()) {
+                case MotionEvent.ACTION_DOWN:
+                    mDraggingHandle = this;
+                    mAnchorPosition = isLeft ? mEndPosition : mStartPosition;
+                    mAnchorOffset = isLeft ? mEndOffset : mStartOffset;
+                    // 手指到游标尖端的距离
+                    mAdjustX = (int) event.getX() - mPadding - (isLeft ? mWidth : 0);
+                    mAdjustY = (int) event.getY();
+                    if (null != mOperateWindow) {
+                        mOperateWindow.dismiss();
+                    }
+                    break;
+                case MotionEvent.ACTION_MOVE:
+                    mLastRawX = (int) event.getRawX();
+                    mLastRawY = (int) event.getRawY();
+                    dragTo(mLastRawX, mLastRawY);
+                    updateAutoScroll(mLastRawY);
+                    break;
+                case MotionEvent.ACTION_UP:
+                case MotionEvent.ACTION_CANCEL:
+                    mDraggingHandle = null;
+                    stopAutoScroll();
+                    showOperateWindow();
+                    break;
+            }
+            return true;
+        }
+
+        /**
+         * 手指位置换算成（条目, offset），可以跨条目
+         */
+        private void dragTo(int rawX, int rawY) {
+            int x = rawX - mAdjustX;
+            // 游标尖端在行的底部，往上半行落在文字上
+            int y = rawY - mAdjustY - mHeight / 2;
+            mRecyclerView.getLocationOnScreen(mCoors);
+            int listY = Math.max(0, Math.min(y - mCoors[1], mRecyclerView.getHeight() - 1));
+            View child = mRecyclerView.findChildViewUnder(x - mCoors[0], listY);
+            if (null == child) {
+                child = findNearestChild(listY);
+            }
+            RecyclerView.ViewHolder holder = null == child ? null : mRecyclerView.getChildViewHolder(child);
+            int position = null == holder ? RecyclerView.NO_POSITION : holder.getAdapterPosition();
+            TextView textView = position == RecyclerView.NO_POSITION ? null : mSource.getTextView(holder);
+            // 不能选择的条目不移动
+            if (null == textView || null == mSource.getText(position)) {
+                return;
+            }
+            textView.getLocationOnScreen(mCoors);
+            int layoutX = x - mCoors[0] - textView.getTotalPaddingLeft();
+            int layoutY = y - mCoors[1] - textView.getTotalPaddingTop();
+            int oldPosition = isLeft ? mStartPosition : mEndPosition;
+            int oldOffset = isLeft ? mStartOffset : mEndOffset;
+            int offset;
+            if (position == oldPosition) {
+                offset = SelectTextHelper.getHysteresisOffset(textView, layoutX, layoutY,
+                        Math.min(oldOffset, textView.getText().length()));
+            } else {
+                offset = SelectTextHelper.getPreciseOffset(textView, layoutX, layoutY);
+            }
+            if (offset < 0
+                    || (position == oldPosition && offset == oldOffset)
+                    || compare(position, offset, mAnchorPosition, mAnchorOffset) == 0) {
+                return;
+            }
+            // 越过另一端时交换方向
+            boolean left = compare(position, offset, mAnchorPosition, mAnchorOffset) < 0;
+            if (left != isLeft) {
+                getCursorHandle(left).changeDirection();
+                changeDirection();
+            }
+            setSelection(mAnchorPosition, mAnchorOffset, position, offset);
+            mStartHandle.update();
+            mEndHandle.update();
+        }
+
+        private View findNearestChild(int listY) {
+            View nearest = null;
+            int distance = Integer.MAX_VALUE;
+            for (int i = 0, count = mRecyclerView.getChildCount(); i < count; i++) {
+                View child = mRecyclerView.getChildAt(i);
+                int d = listY < child.getTop() ? child.getTop() - listY : listY - child.getBottom();
+                if (d < distance) {
+                    distance = d;
+                    nearest = child;
+                }
+            }
+            return nearest;
+        }
+
+        /**
+         * 按选区更新位置
+         * 所在条目不在屏幕上或所在行不在列表里时隐藏，不接收触摸，也不移动到列表外
+         */
+        void update() {
+            TextView textView = findTextView(isLeft ? mStartPosition : mEndPosition);
+            if (null == textView || !getLinePosition(textView, isLeft ? mStartOffset : mEndOffset, mPoint)
+                    // 游标画在行的下面，整个游标都要在列表里
+                    || !isInList(mPoint[1], mPoint[2] + mHeight)) {
+                if (mDraggingHandle == this) {
+                    // 正在拖动的游标继续接收这次手势
+                    setVisibility(View.INVISIBLE);
+                } else {
+                    SelectTextHelper.setWindowHidden(mPopupWindow, this, true);
+                }
+                return;
+            }
+            SelectTextHelper.setWindowHidden(mPopupWindow, this, false);
+            int posX = mPoint[0] - mPadding - (isLeft ? mWidth : 0);
+            if (mPopupWindow.isShowing()) {
+                mPopupWindow.update(posX, mPoint[2], -1, -1);
+            } else {
+                mPopupWindow.showAtLocation(mRecyclerView, Gravity.NO_GRAVITY, posX, mPoint[2]);
+            }
+        }
+
+        void dismiss() {
+            mPopupWindow.dismiss();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.xiaoguang.selecttext;
+
+import android.text.GetChars;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * 跨条目选中的文本
+ * <p>
+ * 只保存选区两端，不拷贝文本；length() 只累加各条目的长度，
+ * toString() 时才按顺序拼接，中间加上 Source 提供的分隔。
+ * 实现 GetChars，按块读取时每次只顺序走一遍条目，不逐字 charAt。
+ */
+final class SelectTextCrossText implements CharSequence, GetChars {
+
+    private final SelectTextCrossController.Source mSource;
+    private final int mStartPosition;
+    private final int mStartOffset;
+    private final int mEndPosition;
+    private final int mEndOffset;
+    private int mLength = -1;
+
+    SelectTextCrossText(SelectTextCrossController.Source source,
+                        int startPosition, int startOffset, int endPosition, int endOffset) {
+        mSource = source;
+        mStartPosition = startPosition;
+        mStartOffset = startOffset;
+        mEndPosition = endPosition;
+        mEndOffset = endOffset;
+    }
+
+    @Override
+    public int length() {
+        if (mLength < 0) {
+            int length = 0;
+            for (int position = mStartPosition; position <= mEndPosition; position++) {
+                CharSequence text = mSource.getText(position);
+                if (null != text) {
+                    length += getEnd(position, text) - getStart(position, text);
+                }
+                if (position < mEndPosition) {
+                    length += mSource.getSeparator(position).length();
+                }
+            }
+            mLength = length;
+        }
+        return mLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+        for (int position = mStartPosition; position <= mEndPosition; position++) {
+            CharSequence text = mSource.getText(position);
+            if (null != text) {
+                int start = getStart(position, text);
+                int count = getEnd(position, text) - start;
+                if (index < count) {
+                    return text.charAt(start + index);
+                }
+                index -= count;
+            }
+            if (position < mEndPosition) {
+                CharSequence separator = mSource.getSeparator(position);
+                if (index < separator.length()) {
+                    return separator.charAt(index);
+                }
+                index -= separator.length();
+            }
+        }
+        throw new IndexOutOfBoundsException();
+    }
+
+    /**
+     * 拷贝 [start, end) 到 dest，只遍历一次条目
+     */
+    @Override
+    public void getChars(int start, int end, char[] dest, int destoff) {
+        if (start < 0 || end < start || end > length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        int index = 0;// 当前片段在整个文本里的开始位置
+        for (int position = mStartPosition; position <= mEndPosition && index < end; position++) {
+            CharSequence text = mSource.getText(position);
+            if (null != text) {
+                int textStart = getStart(position, text);
+                index = copy(text, textStart, getEnd(position, text), index, start, end, dest, destoff);
+            }
+            if (position < mEndPosition) {
+                CharSequence separator = mSource.getSeparator(position);
+                index = copy(separator, 0, separator.length(), index, start, end, dest, destoff);
+            }
+        }
+    }
+
+    /**
+     * 拷贝片段 [from, to) 和 [start, end) 重叠的部分
+     *
+     * @return 下一个片段的开始位置
+     */
+    private static int copy(CharSequence text, int from, int to, int index,
+                            int start, int end, char[] dest, int destoff) {
+        int next = index + to - from;
+        int copyStart = Math.max(start, index);
+        int copyEnd = Math.min(end, next);
+        if (copyStart < copyEnd) {
+            TextUtils.getChars(text, from + copyStart - index, from + copyEnd - index,
+                    dest, destoff + copyStart - start);
+        }
+        return next;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(length());
+        for (int position = mStartPosition; position <= mEndPosition; position++) {
+            CharSequence text = mSource.getText(position);
+            if (null != text) {
+                builder.append(text, getStart(position, text), getEnd(position, text));
+            }
+            if (position < mEndPosition) {
+                builder.append(mSource.getSeparator(position));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 不可变的快照，只保留各条目的 String，不再引用 Source
+     * Source 返回 String 时只保存引用；返回其他 CharSequence（包括 String.subSequence 的结果）时会拷贝，
+     * 分段文档不走这里，见 SelectTextDocumentController.getSelectedText
+     * 主线程调用
+     */
+    SelectTextClipText snapshot() {
+        int count = (mEndPosition - mStartPosition) * 2 + 1;
+        String[] texts = new String[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int i = 0;
+        for (int position = mStartPosition; position <= mEndPosition; position++) {
+            CharSequence text = mSource.getText(position);
+            if (null == text) {
+                texts[i] = "";
+            } else {
+                texts[i] = text.toString();
+                starts[i] = getStart(position, text);
+                ends[i] = getEnd(position, text);
+            }
+            i++;
+            if (position < mEndPosition) {
+                texts[i] = mSource.getSeparator(position).toString();
+                ends[i] = texts[i].length();
+                i++;
+            }
+        }
+        return new SelectTextClipText(texts, starts, ends);
+    }
+
+    private int getStart(int position, CharSequence text) {
+        return position == mStartPosition ? Math.min(mStartOffset, text.length()) : 0;
+    }
+
+    private int getEnd(int position, CharSequence text) {
+        return position == mEndPosition ? Math.min(mEndOffset, text.length()) : text.length();
+    }
+}
@@ -0,0 +1,132 @@
+package com.xiaoguang.selecttext;
+
+import android.text.TextUtils;
+
+import java.util.Arrays;
+
+/**
+ * 分段的长文本
+ * <p>
+ * 按换行把文本切成段落，过长的段落再按 {@link #MAX_CHUNK_LENGTH} 在空白处切开。
+ * 每段只记录在全文里的开始、结束位置，不拷贝文本；换行符不属于任何一段，但算在全局 offset 里。
+ */
+public final class SelectTextDocument {
+
+    static final int MAX_CHUNK_LENGTH = 2000;// 每段最多字数
+    private static final int MAX_BREAK_LOOKBACK = 200;// 往回找空白的最大距离
+
+    private final CharSequence mText;
+    private String mString;// mText 是 String 时就是它本身
+    private int[] mStarts = new int[16];
+    private int[] mEnds = new int[16];
+    private int mCount;
+
+    public SelectTextDocument(CharSequence text) {
+        mText = null == text ? "" : text;
+        split();
+    }
+
+    private void split() {
+        int length = mText.length();
+        int start = 0;
+        while (start <= length) {
+            int newline = TextUtils.indexOf(mText, '\n', start);
+            int end = newline < 0 ? length : newline;
+            addParagraph(start, end);
+            if (newline < 0) {
+                break;
+            }
+            start = newline + 1;
+        }
+        mStarts = Arrays.copyOf(mStarts, mCount);
+        mEnds = Arrays.copyOf(mEnds, mCount);
+    }
+
+    /**
+     * 过长的段落在空白处切开，找不到空白时硬切，不切开代理对
+     */
+    private void addParagraph(int start, int end) {
+        while (end - start > MAX_CHUNK_LENGTH) {
+            int cut = start + MAX_CHUNK_LENGTH;
+            for (int i = cut; i > cut - MAX_BREAK_LOOKBACK; i--) {
+                if (Character.isWhitespace(mText.charAt(i - 1))) {
+                    cut = i;
+                    break;
+                }
+            }
+            if (Character.isHighSurrogate(mText.charAt(cut - 1))) {
+                cut--;
+            }
+            addChunk(start, cut);
+            start = cut;
+        }
+        addChunk(start, end);
+    }
+
+    private void addChunk(int start, int end) {
+        if (mCount == mStarts.length) {
+            mStarts = Arrays.copyOf(mStarts, mCount * 2);
+            mEnds = Arrays.copyOf(mEnds, mCount * 2);
+        }
+        mStarts[mCount] = start;
+        mEnds[mCount] = end;
+        mCount++;
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    /**
+     * 全文的 String，mText 不是 String 时只转换一次
+     */
+    String getString() {
+        if (null == mString) {
+            mString = mText.toString();
+        }
+        return mString;
+    }
+
+    public int length() {
+        return mText.length();
+    }
+
+    public int getChunkCount() {
+        return mCount;
+    }
+
+    /**
+     * 段落在全文里的开始位置
+     */
+    public int getChunkStart(int chunk) {
+        return mStarts[chunk];
+    }
+
+    /**
+     * 段落在全文里的结束位置，不包括换行符
+     */
+    public int getChunkEnd(int chunk) {
+        return mEnds[chunk];
+    }
+
+    public CharSequence getChunkText(int chunk) {
+        return mText.subSequence(mStarts[chunk], mEnds[chunk]);
+    }
+
+    /**
+     * 全局 offset 所在的段落，换行符算在前一段
+     */
+    public int getChunkForOffset(int offset) {
+        int low = 0;
+        int high = mCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mStarts[mid] <= offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Math.max(0, low - 1);
+    }
+}
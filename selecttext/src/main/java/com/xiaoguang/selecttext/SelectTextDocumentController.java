@@ -0,0 +1,307 @@
+package com.xiaoguang.selecttext;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.StringRes;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 长文本分段选择
+ * <p>
+ * 文本按段落切开放进 RecyclerView，只有可见的段落才会布局。
+ * 选区由 {@link SelectTextCrossController} 管理，可以跨段落，对外换算成全局 offset。
+ */
+public class SelectTextDocumentController {
+
+    private final RecyclerView mRecyclerView;
+    private final Context mContext;
+    private final SelectTextDocument mDocument;
+    private final int mItemLayout;
+    private final SelectTextCrossController mCrossController;
+    private OnSelectListener mSelectListener;
+
+    private int mTouchX;
+    private int mTouchY;
+
+    public interface OnSelectListener {
+        /**
+         * 选区变化，全局 offset
+         */
+        void onSelectionRangeChanged(int start, int end);
+
+        void onReset();
+    }
+
+    public static class Builder {
+        private final RecyclerView mRecyclerView;
+        private final CharSequence mText;
+        private int mItemLayout = R.layout.item_select_text_chunk;
+        private int mSelectedColor = 0xFFAFE1F4;
+        private int mCursorHandleColor = 0xFF1379D6;
+        private float mCursorHandleSizeInDp = 24;
+        private int mPopSpanCount = 5;
+        private final List<SelectTextMenuItem> itemTextList = new ArrayList<>();
+        private final List<SelectTextHelper.Builder.onSeparateItemClickListener> itemListenerList = new ArrayList<>();
+
+        public Builder(RecyclerView recyclerView, CharSequence text) {
+            mRecyclerView = recyclerView;
+            mText = text;
+        }
+
+        /**
+         * 段落的布局，根 View 必须是 TextView
+         */
+        public Builder setItemLayout(@LayoutRes int itemLayout) {
+            mItemLayout = itemLayout;
+            return this;
+        }
+
+        public Builder setSelectedColor(@ColorInt int color) {
+            mSelectedColor = color;
+            return this;
+        }
+
+        public Builder setCursorHandleColor(@ColorInt int cursorHandleColor) {
+            mCursorHandleColor = cursorHandleColor;
+            return this;
+        }
+
+        public Builder setCursorHandleSizeInDp(float cursorHandleSizeInDp) {
+            mCursorHandleSizeInDp = cursorHandleSizeInDp;
+            return this;
+        }
+
+        public Builder setPopSpanCount(int popSpanCount) {
+            mPopSpanCount = popSpanCount;
+            return this;
+        }
+
+        public Builder addItem(@DrawableRes int drawableId, @StringRes int textResId,
+                               SelectTextHelper.Builder.onSeparateItemClickListener listener) {
+            itemTextList.add(new SelectTextMenuItem(textResId, itemTextList.size(), drawableId,
+                    mRecyclerView.getContext().getResources().getString(textResId)));
+            itemListenerList.add(listener);
+            return this;
+        }
+
+        public SelectTextDocumentController build() {
+            return new SelectTextDocumentController(this);
+        }
+    }
+
+    private SelectTextDocumentController(Builder builder) {
+        mRecyclerView = builder.mRecyclerView;
+        mContext = mRecyclerView.getContext();
+        mDocument = new SelectTextDocument(builder.mText);
+        mItemLayout = builder.mItemLayout;
+
+        if (null == mRecyclerView.getLayoutManager()) {
+            mRecyclerView.setLayoutManager(new LinearLayoutManager(mContext));
+        }
+        mRecyclerView.setAdapter(new DocumentAdapter());
+
+        SelectTextCrossController.Builder crossBuilder = new SelectTextCrossController
+                .Builder(mRecyclerView, mSource)
+                .setSelectedColor(builder.mSelectedColor)
+                .setCursorHandleColor(builder.mCursorHandleColor)
+                .setCursorHandleSizeInDp(builder.mCursorHandleSizeInDp)
+                .setPopSpanCount(builder.mPopSpanCount);
+        for (int i = 0; i < builder.itemTextList.size(); i++) {
+            SelectTextMenuItem item = builder.itemTextList.get(i);
+            crossBuilder.addItem(item.getDrawableId(), (int) item.getId(), builder.itemListenerList.get(i));
+        }
+        mCrossController = crossBuilder.build();
+        mCrossController.setSelectListener(new SelectTextCrossController.OnSelectListener() {
+            @Override
+            public void onSelectionChanged(int startPosition, int startOffset, int endPosition, int endOffset) {
+                if (null != mSelectListener) {
+                    mSelectListener.onSelectionRangeChanged(getSelectionStart(), getSelectionEnd());
+                }
+            }
+
+            @Override
+            public void onReset() {
+                if (null != mSelectListener) {
+                    mSelectListener.onReset();
+                }
+            }
+        });
+    }
+
+    /**
+     * 段落的文本，段落之间是换行或者直接相连
+     */
+    private final SelectTextCrossController.Source mSource = new SelectTextCrossController.Source() {
+        @Override
+        public CharSequence getText(int position) {
+            return mDocument.getChunkText(position);
+        }
+
+        @Override
+        public TextView getTextView(RecyclerView.ViewHolder holder) {
+            return (TextView) holder.itemView;
+        }
+
+        @Override
+        public CharSequence getSeparator(int position) {
+            return mDocument.getChunkEnd(position) < mDocument.getChunkStart(position + 1) ? "\n" : "";
+        }
+    };
+
+    /**
+     * public start
+     */
+
+    public void setSelectListener(OnSelectListener selectListener) {
+        mSelectListener = selectListener;
+    }
+
+    public SelectTextDocument getDocument() {
+        return mDocument;
+    }
+
+    public boolean isSelected() {
+        return mCrossController.isSelected();
+    }
+
+    public boolean isSelectAll() {
+        return isSelected() && getSelectionStart() == 0 && getSelectionEnd() == mDocument.length();
+    }
+
+    public boolean isPopShowing() {
+        return mCrossController.isPopShowing();
+    }
+
+    /**
+     * 选区开始的全局 offset
+     */
+    public int getSelectionStart() {
+        return mDocument.getChunkStart(mCrossController.getStartPosition()) + mCrossController.getStartOffset();
+    }
+
+    /**
+     * 选区结束的全局 offset
+     */
+    public int getSelectionEnd() {
+        return mDocument.getChunkStart(mCrossController.getEndPosition()) + mCrossController.getEndOffset();
+    }
+
+    /**
+     * 选中的文本，没有选择时返回空字符串
+     * 段落之间的分隔和全文一致，直接引用全文的 String 和全局 [start, end)，
+     * 不按段落 subSequence 拷贝，可以直接交给 {@link SelectTextClipboard#copy}
+     */
+    public CharSequence getSelectedText() {
+        if (!isSelected()) {
+            return "";
+        }
+        return new SelectTextClipText(new String[]{mDocument.getString()},
+                new int[]{getSelectionStart()}, new int[]{getSelectionEnd()});
+    }
+
+    /**
+     * 全选
+     */
+    public void selectAll() {
+        int last = mDocument.getChunkCount() - 1;
+        if (mDocument.length() == 0) {
+            return;
+        }
+        mCrossController.select(0, 0, last, mDocument.getChunkEnd(last) - mDocument.getChunkStart(last));
+    }
+
+    /**
+     * 取消选择
+     */
+    public void reset() {
+        mCrossController.reset();
+    }
+
+    /**
+     * 销毁
+     */
+    public void destroy() {
+        mCrossController.destroy();
+    }
+
+    /**
+     * public end
+     */
+
+    /**
+     * 长按段落，选中所在的词
+     */
+    private boolean onChunkLongClick(TextView textView) {
+        int chunk = mRecyclerView.getChildAdapterPosition(textView);
+        if (chunk == RecyclerView.NO_POSITION) {
+            return false;
+        }
+        int length = textView.getText().length();
+        int offset = SelectTextHelper.getPreciseOffset(textView,
+                mTouchX - textView.getTotalPaddingLeft(), mTouchY - textView.getTotalPaddingTop());
+        if (offset < 0 || length == 0) {
+            return false;
+        }
+        offset = Math.min(offset, length - 1);
+        int start = offset;
+        int end = offset + 1;
+        int[] range = SelectTextBoundaryIndex.obtain(textView).getRange(SelectTextHelper.GRANULARITY_WORD, offset);
+        if (null != range && TextUtils.isGraphic(textView.getText().subSequence(range[0], range[1]))) {
+            start = range[0];
+            end = range[1];
+        }
+        mCrossController.select(chunk, start, chunk, end);
+        return true;
+    }
+
+    /**
+     * 段落的适配器
+     * 选区高亮由 SelectTextCrossController 在 attach 时设置
+     */
+    private class DocumentAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        private final View.OnTouchListener mTouchListener = (v, event) -> {
+            mTouchX = (int) event.getX();
+            mTouchY = (int) event.getY();
+            return false;
+        };
+
+        private final View.OnClickListener mClickListener = v -> reset();
+
+        private final View.OnLongClickListener mLongClickListener = v -> onChunkLongClick((TextView) v);
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            TextView textView = (TextView) LayoutInflater.from(mContext).inflate(mItemLayout, parent, false);
+            textView.setOnTouchListener(mTouchListener);
+            textView.setOnClickListener(mClickListener);
+            textView.setOnLongClickListener(mLongClickListener);
+            return new RecyclerView.ViewHolder(textView) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            ((TextView) holder.itemView).setText(mDocument.getChunkText(position), TextView.BufferType.SPANNABLE);
+        }
+
+        @Override
+        public int getItemCount() {
+            return mDocument.getChunkCount();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.xiaoguang.selecttext;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.core.content.ContextCompat;
+
+/**
+ * 游标图片缓存
+ * <p>
+ * 同样颜色、大小、方向的游标只绘制一次，所有 SelectTextHelper 的游标共用同一张 Bitmap；
+ * 自定义游标图片按资源和大小缓存。
+ */
+final class SelectTextHandleCache {
+
+    private static final int MAX_SIZE = 8;// 最多缓存的游标图片个数
+
+    private static final LruCache<String, Bitmap> sCache = new LruCache<>(MAX_SIZE);
+
+    private SelectTextHandleCache() {
+    }
+
+    /**
+     * 默认游标：圆形加上靠近文字一侧的直角
+     *
+     * @param isLeft 左边的游标直角在右上，右边的游标直角在左上
+     */
+    static Bitmap getHandle(@ColorInt int color, int size, boolean isLeft) {
+        String key = "color:" + color + ":" + size + ":" + isLeft;
+        Bitmap bitmap = sCache.get(key);
+        if (null == bitmap) {
+            bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(color);
+            int radius = size / 2;
+            canvas.drawCircle(radius, radius, radius, paint);
+            if (isLeft) {
+                canvas.drawRect(radius, 0, radius * 2, radius, paint);
+            } else {
+                canvas.drawRect(0, 0, radius, radius, paint);
+            }
+            sCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 自定义游标图片，缩放到 size x size
+     * 资源不存在时返回 null
+     */
+    static Bitmap getHandle(Context context, @DrawableRes int drawableRes, int size) {
+        String key = "res:" + drawableRes + ":" + size;
+        Bitmap bitmap = sCache.get(key);
+        if (null == bitmap) {
+            Drawable drawable = ContextCompat.getDrawable(context, drawableRes);
+            if (null == drawable) {
+                return null;
+            }
+            bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+            drawable.setBounds(0, 0, size, size);
+            drawable.draw(new Canvas(bitmap));
+            sCache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+}
@@ -2,10 +2,12 @@ package com.xiaoguang.selecttext;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Paint;
+import android.graphics.Rect;
 import android.os.Build;
-import android.text.Layout;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.text.Selection;
 import android.text.Spannable;
 import android.text.Spanned;
@@ -15,24 +17,26 @@ import android.text.style.BackgroundColorSpan;
 import android.text.style.ClickableSpan;
 import android.text.style.URLSpan;
 import android.util.Pair;
+import android.view.Choreographer;
 import android.view.Gravity;
-import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
 import android.widget.ImageView;
-import android.widget.Magnifier;
 import android.widget.PopupWindow;
 import android.widget.TextView;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.StringRes;
+import androidx.core.os.TraceCompat;
+import androidx.core.text.PrecomputedTextCompat;
 import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -47,11 +51,18 @@ public class SelectTextHelper {
 
     private static int DEFAULT_SELECTION_LENGTH = 2;// 选2个字节长度 例:表情属于2个字节
     private static int DEFAULT_SHOW_DURATION = 100;// 弹窗100毫秒
+    private static float FAST_DRAG_DP_PER_MS = 1.2f;// 超过这个速度按词吸附
+
+    // 选择粒度
+    public static final int GRANULARITY_CHARACTER = 0;// 字
+    public static final int GRANULARITY_WORD = 1;// 词
+    public static final int GRANULARITY_SENTENCE = 2;// 句
+    public static final int GRANULARITY_PARAGRAPH = 3;// 段
 
     private CursorHandle mStartHandle;// 开始操作标
     private CursorHandle mEndHandle;// 结束操作标
     private OperateWindow mOperateWindow;// 操作弹窗
-    private Magnifier mMagnifier;// 放大镜组件
+    private SelectTextMagnifier mMagnifier;// 放大镜组件
     private SelectionInfo mSelectionInfo = new SelectionInfo();
     private OnSelectListener mSelectListener;
 
@@ -66,24 +77,43 @@ public class SelectTextHelper {
     private int mSelectedColor; // 选中文本的颜色
     private int mCursorHandleColor; // 游标的颜色
     private int mCursorHandleSize; // 游标大小
+    private int mCursorHandleLeftRes; // 自定义左边游标图片
+    private int mCursorHandleRightRes; // 自定义右边游标图片
     private boolean mSelectAll; // 全选
     private boolean mSelectedAllNoPop; // 已经全选无弹窗
     private boolean mScrollShow; // 滑动依然显示弹窗
+    private boolean mScrollFollow; // 滑动时弹窗和游标跟随移动
     private boolean mMagnifierShow; // 显示放大镜
+    private boolean mDragCoalesce; // 拖动游标时每帧只处理一次
+    private boolean mHighlightOverlay; // 用 ViewOverlay 绘制选中背景
+    private boolean mOverlayActive; // 这次选择用 ViewOverlay 绘制，不是 Spannable 的文本不再转换
+    private Runnable mPendingShow; // 文本转换后等新的 Layout 再显示选区
+    private int mGranularity; // 选择粒度
+    private boolean mVelocitySnap; // 快速拖动时按词吸附
+    private int mLastDragFrameMoveCount; // 上一帧合并的原始移动事件个数
     private int mPopSpanCount; // 弹窗每行个数
+    private boolean mLightweightMenu; // 操作弹窗使用 SelectTextMenuView
+    private int mAutoLinkMask; // 后台识别链接
     private int mPopBgResource; // 弹窗箭头
     private int mPopArrowImg; // 弹窗箭头
-    private List<Pair<Integer, String>> itemTextList;// 操作弹窗item文本
+    private List<SelectTextMenuItem> itemTextList;// 操作弹窗item
     private List<Builder.onSeparateItemClickListener> itemListenerList = new LinkedList<>();// 操作弹窗item监听
+    private Builder.onItemVisibleFilter mItemVisibleFilter;// 操作弹窗item是否显示
 
     private BackgroundColorSpan mSpan;
+    private SelectTextHighlightDrawable mHighlight;
     private boolean isHideWhenScroll;
     private boolean isHide = true;
     private boolean usedClickListener = false;// 消费了点击事件
 
-    private ViewTreeObserver.OnPreDrawListener mOnPreDrawListener;
-    private ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener;
-    private View.OnTouchListener mRootTouchListener;
+    private boolean mListScoped = false;// 由 SelectTextListCoordinator 管理，textView 会切换
+
+    // 已经装上监听的对象，保证每个监听只装一次
+    private View mAttachListenerView;
+    private ViewTreeObserver mObservedTreeObserver;
+    private View mRootTouchView;
+    private final int[] mTempLocation = new int[2];
+    private final Rect mVisibleRect = new Rect();
 
     /**
      * public start
@@ -94,7 +124,11 @@ public class SelectTextHelper {
 
         void onLongClick(View v);// 长按textView
 
-        void onTextSelected(CharSequence content);// 选中文本回调
+        void onTextSelected(CharSequence content);// 选中文本回调 content只是选区的视图，需要保存请调用toString()
+
+        // 选区范围变化回调 [start, end)，可选实现
+        default void onSelectionRangeChanged(int start, int end) {
+        }
 
         void onDismiss();// 解除弹窗回调
 
@@ -110,22 +144,41 @@ public class SelectTextHelper {
     }
 
     public static class Builder {
+        private Context mContext;
         private TextView mTextView;
         private int mCursorHandleColor = 0xFF1379D6;
         private int mSelectedColor = 0xFFAFE1F4;
         private float mCursorHandleSizeInDp = 24;
+        private int mCursorHandleLeftRes = 0;
+        private int mCursorHandleRightRes = 0;
         private boolean mSelectAll = true;
         private boolean mSelectedAllNoPop = false;
         private boolean mScrollShow = true;
+        private boolean mScrollFollow = false;
         private boolean mMagnifierShow = true;
+        private boolean mDragCoalesce = true;
+        private boolean mHighlightOverlay = false;
+        private int mGranularity = GRANULARITY_CHARACTER;
+        private boolean mVelocitySnap = false;
         private int mPopSpanCount = 5;
+        private boolean mLightweightMenu = false;
+        private int mAutoLinkMask = 0;
         private int mPopBgResource = 0;
         private int mPopArrowImg = 0;
-        private List<Pair<Integer, String>> itemTextList = new LinkedList<>();
-        private List<onSeparateItemClickListener> itemListenerList = new LinkedList<>();
+        private List<SelectTextMenuItem> itemTextList = new ArrayList<>();
+        private List<onSeparateItemClickListener> itemListenerList = new ArrayList<>();
+        private onItemVisibleFilter mItemVisibleFilter;
 
         public Builder(TextView textView) {
             mTextView = textView;
+            mContext = textView.getContext();
+        }
+
+        /**
+         * 不绑定 TextView，由 SelectTextListCoordinator 在长按时绑定
+         */
+        public Builder(Context context) {
+            mContext = context;
         }
 
         /**
@@ -144,6 +197,18 @@ public class SelectTextHelper {
             return this;
         }
 
+        /**
+         * 自定义游标图片，按游标大小缩放，设置后游标颜色不生效
+         *
+         * @param leftDrawable  左边（开始）游标
+         * @param rightDrawable 右边（结束）游标
+         */
+        public Builder setCursorHandleDrawable(@DrawableRes int leftDrawable, @DrawableRes int rightDrawable) {
+            mCursorHandleLeftRes = leftDrawable;
+            mCursorHandleRightRes = rightDrawable;
+            return this;
+        }
+
         /**
          * 选中文本的颜色
          */
@@ -176,6 +241,15 @@ public class SelectTextHelper {
             return this;
         }
 
+        /**
+         * 滑动时弹窗和游标每帧跟随移动，不先隐藏再显示；移出屏幕时只是不可见
+         * 需要 setScrollShow(true)，低于 Android 4.1 时不生效
+         */
+        public Builder setScrollFollow(boolean scrollFollow) {
+            mScrollFollow = scrollFollow;
+            return this;
+        }
+
         /**
          * 显示放大镜
          */
@@ -184,6 +258,54 @@ public class SelectTextHelper {
             return this;
         }
 
+        /**
+         * 拖动游标时按屏幕刷新合并移动事件，每帧只更新一次选区
+         * 低于 Android 4.1 时不生效
+         */
+        public Builder setDragCoalesce(boolean dragCoalesce) {
+            mDragCoalesce = dragCoalesce;
+            return this;
+        }
+
+        /**
+         * 选中背景画在 ViewOverlay 上，不修改文本的 span
+         * 默认 false：已经是 Spannable 的文本使用 BackgroundColorSpan，其余文本不转换，也画在 ViewOverlay 上；
+         * 低于 Android 4.3 时不生效
+         */
+        public Builder setHighlightOverlay(boolean highlightOverlay) {
+            mHighlightOverlay = highlightOverlay;
+            return this;
+        }
+
+        /**
+         * 选择粒度：长按选中所在的字、词、句、段，拖动游标时吸附到对应边界
+         * {@link #GRANULARITY_CHARACTER} {@link #GRANULARITY_WORD}
+         * {@link #GRANULARITY_SENTENCE} {@link #GRANULARITY_PARAGRAPH}
+         */
+        public Builder setSelectionGranularity(int granularity) {
+            mGranularity = granularity;
+            return this;
+        }
+
+        /**
+         * 快速拖动游标时按词吸附，慢速时按选择粒度
+         */
+        public Builder setVelocitySnap(boolean velocitySnap) {
+            mVelocitySnap = velocitySnap;
+            return this;
+        }
+
+        /**
+         * 在后台线程识别文本里的链接，点击回调 onClickUrl
+         * 替代 android:autoLink，不在主线程 Linkify
+         *
+         * @param linkMask Linkify.WEB_URLS、Linkify.EMAIL_ADDRESSES、Linkify.PHONE_NUMBERS 的组合
+         */
+        public Builder setAutoLink(int linkMask) {
+            mAutoLinkMask = linkMask;
+            return this;
+        }
+
         /**
          * 弹窗每行个数
          */
@@ -192,6 +314,15 @@ public class SelectTextHelper {
             return this;
         }
 
+        /**
+         * 操作弹窗使用 SelectTextMenuView 自己绘制 item，不使用 RecyclerView
+         * 适合只有几个固定按钮的弹窗，创建和首次布局更快；不支持 itemWrapContent
+         */
+        public Builder setLightweightMenu(boolean lightweightMenu) {
+            mLightweightMenu = lightweightMenu;
+            return this;
+        }
+
         /**
          * 弹窗背景颜色、弹窗箭头
          */
@@ -201,43 +332,79 @@ public class SelectTextHelper {
             return this;
         }
 
+        /**
+         * item的id是textResId
+         */
         public Builder addItem(@DrawableRes int drawableId, @StringRes int textResId, onSeparateItemClickListener listener) {
-            itemTextList.add(new Pair<>(drawableId, mTextView.getContext().getResources().getString(textResId)));
+            itemTextList.add(new SelectTextMenuItem(textResId, itemTextList.size(), drawableId,
+                    mContext.getResources().getString(textResId)));
             itemListenerList.add(listener);
             return this;
         }
 
+        /**
+         * item的id是添加的顺序
+         */
         public Builder addItem(@DrawableRes int drawableId, String itemText, onSeparateItemClickListener listener) {
-            itemTextList.add(new Pair<>(drawableId, itemText));
+            itemTextList.add(new SelectTextMenuItem(itemTextList.size(), itemTextList.size(), drawableId, itemText));
             itemListenerList.add(listener);
             return this;
         }
 
+        /**
+         * 每次显示操作弹窗时决定item是否显示，例如全选后隐藏全选
+         * 只刷新有变化的item
+         */
+        public Builder setItemVisibleFilter(onItemVisibleFilter itemVisibleFilter) {
+            mItemVisibleFilter = itemVisibleFilter;
+            return this;
+        }
+
         public SelectTextHelper build() {
+            // 空闲时预先准备好同样式的操作弹窗
+            SelectTextWindowPool.prewarm(mContext, getOperateLayout(mLightweightMenu), mPopBgResource, mPopArrowImg);
             return new SelectTextHelper(this);
         }
 
         public interface onSeparateItemClickListener {
             void onClick();
         }
+
+        public interface onItemVisibleFilter {
+            boolean isVisible(SelectTextMenuItem item, SelectTextHelper helper);
+        }
     }
 
     public SelectTextHelper(Builder builder) {
         mTextView = builder.mTextView;
-        mContext = mTextView.getContext();
+        mContext = builder.mContext;
         mSelectedColor = builder.mSelectedColor;
         mCursorHandleColor = builder.mCursorHandleColor;
+        mCursorHandleLeftRes = builder.mCursorHandleLeftRes;
+        mCursorHandleRightRes = builder.mCursorHandleRightRes;
         mSelectAll = builder.mSelectAll;
         mScrollShow = builder.mScrollShow;
+        mScrollFollow = builder.mScrollFollow
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
         mMagnifierShow = builder.mMagnifierShow;
+        mDragCoalesce = builder.mDragCoalesce;
+        mHighlightOverlay = builder.mHighlightOverlay
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+        mGranularity = builder.mGranularity;
+        mVelocitySnap = builder.mVelocitySnap;
         mPopSpanCount = builder.mPopSpanCount;
+        mLightweightMenu = builder.mLightweightMenu;
+        mAutoLinkMask = builder.mAutoLinkMask;
         mPopBgResource = builder.mPopBgResource;
         mPopArrowImg = builder.mPopArrowImg;
         mSelectedAllNoPop = builder.mSelectedAllNoPop;
         itemTextList = builder.itemTextList;
         itemListenerList = builder.itemListenerList;
-        mCursorHandleSize = dp2px(builder.mCursorHandleSizeInDp);
-        init();
+        mItemVisibleFilter = builder.mItemVisibleFilter;
+        mCursorHandleSize = SelectTextMetrics.obtain(mContext).dp2px(builder.mCursorHandleSizeInDp);
+        if (null != mTextView) {
+            init();
+        }
     }
 
     /**
@@ -252,6 +419,34 @@ public class SelectTextHelper {
         }
     }
 
+    /**
+     * 在后台线程测量、排版文本，完成后再交给 textView
+     * 长文本不会在主线程 setText 时卡顿，完成之前 textView 保持原来的内容
+     * 需要用 {@link Builder#Builder(TextView)} 创建
+     */
+    public void setTextAsync(CharSequence text) {
+        SelectTextPrecompute.precompute(mTextView, text, mPrecomputedListener);
+    }
+
+    /**
+     * 使用已经预计算好的文本，例如 PrecomputedTextCompat.create 在后台线程创建的
+     * 选区高亮、触摸定位、全选都直接在这份文本上进行，不会重新测量
+     */
+    public void setPrecomputedText(PrecomputedTextCompat text) {
+        SelectTextPrecompute.cancel(mTextView);
+        reset();
+        SelectTextPrecompute.attach(mTextView, text);
+        mSpannable = null;
+        mSpan = null;
+        init();
+    }
+
+    private final SelectTextPrecompute.OnPrecomputedListener mPrecomputedListener = (textView, text) -> {
+        if (textView == mTextView) {
+            setPrecomputedText(text);
+        }
+    };
+
     /**
      * 操作弹窗是否显示中
      */
@@ -271,6 +466,13 @@ public class SelectTextHelper {
         }
     }
 
+    /**
+     * 拖动游标时，上一次选区更新合并了多少个原始移动事件（含历史采样点）
+     */
+    public int getLastDragFrameMoveCount() {
+        return mLastDragFrameMoveCount;
+    }
+
     /**
      * 选择文本监听
      */
@@ -282,25 +484,72 @@ public class SelectTextHelper {
      * 销毁
      */
     public void destroy() {
-        mTextView.getViewTreeObserver().removeOnScrollChangedListener(mOnScrollChangedListener);
-        mTextView.getViewTreeObserver().removeOnPreDrawListener(mOnPreDrawListener);
-        mTextView.getRootView().setOnTouchListener(null);
+        if (null != mTextView) {
+            SelectTextPrecompute.cancel(mTextView);
+        }
+        uninstallListeners();
         reset();
+        if (null != mHighlight) {
+            mTextView.getOverlay().remove(mHighlight);
+            mHighlight = null;
+        }
+        if (null != mMagnifier) {
+            mMagnifier.release();
+            mMagnifier = null;
+        }
         mStartHandle = null;
         mEndHandle = null;
+        if (null != mOperateWindow) {
+            mOperateWindow.recycle();
+        }
         mOperateWindow = null;
     }
 
+    /**
+     * 当前选区 [start, end)
+     * 没有选中时返回 null
+     */
+    public Pair<Integer, Integer> getSelectionRange() {
+        if (!mSelectionInfo.mSelected) {
+            return null;
+        }
+        return new Pair<>(mSelectionInfo.mStart, mSelectionInfo.mEnd);
+    }
+
+    /**
+     * 获取选中的文本
+     * 只在调用时生成字符串，例如复制时
+     * 没有选中时返回 null
+     */
+    public String getSelectedText() {
+        if (!mSelectionInfo.mSelected) {
+            return null;
+        }
+        return TextUtils.substring(mTextView.getText(), mSelectionInfo.mStart, mSelectionInfo.mEnd);
+    }
+
+    /**
+     * 是否已经全选
+     */
+    public boolean isSelectAll() {
+        return mSelectionInfo.mSelected
+                && mSelectionInfo.mStart == 0
+                && mSelectionInfo.mEnd == mTextView.getText().length();
+    }
+
     /**
      * 全选
      */
     public void selectAll() {
         hideSelectView();
-        selectText(0, mTextView.getText().length());
+        boolean laidOut = prepareText();
         isHide = false;
-        showCursorHandle(mStartHandle);
-        showCursorHandle(mEndHandle);
-        showOperateWindow();
+        resumeTreeObservers();
+        if (!laidOut) {
+            mPendingShow = this::selectWholeText;
+            return;
+        }
+        selectWholeText();
     }
 
     /**
@@ -308,113 +557,377 @@ public class SelectTextHelper {
      */
 
     private void init() {
-        mTextView.setText(mTextView.getText(), TextView.BufferType.SPANNABLE);
+        registerTextView(mTextView);
+    }
+
+    /**
+     * 给 textView 装上共用的监听
+     * 每个 textView 只是设置了同一组监听对象，没有额外创建
+     * 不重新设置文本：已经是 Spannable/PrecomputedText 的直接使用，其余的等第一次选择时再处理
+     */
+    void registerTextView(TextView textView) {
+        TraceCompat.beginSection("SelectTextHelper.register");
+        // 缓存里有时马上加上链接，否则后台识别完再加
+        SelectTextLinkify.linkify(textView, mAutoLinkMask, mLinksAppliedListener);
+        // 有链接才需要 MovementMethod，否则 TextView 会把文本拷贝成 Spannable
+        // 要在设置点击监听之前，setMovementMethod 会修改 clickable
+        if (hasClickableSpan(textView.getText())) {
+            // 此setMovementMethod可被修改
+            textView.setMovementMethod(mMovementMethod);
+        } else if (textView.getMovementMethod() == mMovementMethod) {
+            textView.setMovementMethod(null);
+        }
+        textView.setOnTouchListener(mTextTouchListener);
+        textView.setOnClickListener(mTextClickListener);
+        textView.setOnLongClickListener(mTextLongClickListener);
+        TraceCompat.endSection();
+    }
+
+    /**
+     * 后台识别的链接加上之后才需要 MovementMethod
+     */
+    private final SelectTextLinkify.OnLinksAppliedListener mLinksAppliedListener = textView -> {
+        // 正在选择的文本被替换了
+        if (textView == mTextView && null != mSpannable && mSpannable != textView.getText()) {
+            reset();
+        }
+        if (textView.getMovementMethod() != mMovementMethod) {
+            textView.setMovementMethod(mMovementMethod);
+        }
+    };
 
-        mTextView.setOnTouchListener((v, event) -> {
-            mTouchX = (int) event.getX();
-            mTouchY = (int) event.getY();
+    private static boolean hasClickableSpan(CharSequence text) {
+        if (!(text instanceof Spanned)) {
             return false;
-        });
+        }
+        int length = text.length();
+        return ((Spanned) text).nextSpanTransition(-1, length, ClickableSpan.class) < length;
+    }
 
-        mTextView.setOnClickListener(v -> {
-            if (usedClickListener) {
-                usedClickListener = false;
-                return;
-            }
-            if (null != mSelectListener
-                    && (null == mOperateWindow || !mOperateWindow.isShowing())) {
-                mSelectListener.onDismiss();
-            }
+    /**
+     * 第一次选择时准备文本
+     * 不是 Spannable 的文本用 ViewOverlay 高亮，不重新 setText：
+     * wrap_content 的 TextView 重新 setText 后 Layout 为 null，这次长按拿不到位置。
+     * 只有 Android 4.3 以下没有 ViewOverlay 时才转换，转换后要等下一次布局。
+     *
+     * @return Layout 是否可用
+     */
+    private boolean prepareText() {
+        CharSequence text = mTextView.getText();
+        mOverlayActive = mHighlightOverlay;
+        if (text instanceof Spannable) {
+            mSpannable = (Spannable) text;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            mSpannable = null;
+            mOverlayActive = true;
+        } else {
+            TraceCompat.beginSection("SelectTextHelper.prepareText");
+            mTextView.setText(text, TextView.BufferType.SPANNABLE);
+            mSpannable = (Spannable) mTextView.getText();
+            TraceCompat.endSection();
+        }
+        return null != mTextView.getLayout();
+    }
+
+    /**
+     * 切换到另一个 textView
+     * 弹窗和游标继续复用
+     */
+    void switchTextView(TextView textView) {
+        if (textView == mTextView) {
+            return;
+        }
+        if (null != mTextView) {
             reset();
-            if (null != mSelectListener) {
-                mSelectListener.onClick(mTextView);
+            uninstallListeners();
+            if (null != mHighlight) {
+                mTextView.getOverlay().remove(mHighlight);
+                mHighlight = null;
             }
+        }
+        // 放大镜和textView绑定
+        if (null != mMagnifier) {
+            mMagnifier.release();
+        }
+        mMagnifier = null;
+        mSpannable = null;
+        mSpan = null;
+        mTextViewMarginStart = 0;
+        mTextView = textView;
+    }
+
+    /**
+     * 当前绑定的 textView
+     */
+    TextView getTextView() {
+        return mTextView;
+    }
+
+    void setListScoped(boolean listScoped) {
+        mListScoped = listScoped;
+    }
+
+    /**
+     * 主线程空闲时先创建好游标和操作弹窗，第一次长按不用再创建
+     */
+    void prewarm() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return;
+        }
+        Looper.myQueue().addIdleHandler(() -> {
+            if (mStartHandle == null) mStartHandle = new CursorHandle(true);
+            if (mEndHandle == null) mEndHandle = new CursorHandle(false);
+            if (null == mOperateWindow) {
+                mOperateWindow = new OperateWindow(mContext);
+            }
+            return false;
         });
+    }
 
-        mTextView.setOnLongClickListener(v -> {
+    private final View.OnTouchListener mTextTouchListener = (v, event) -> {
+        mTouchX = (int) event.getX();
+        mTouchY = (int) event.getY();
+        return false;
+    };
 
-            mTextView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
-                @Override
-                public void onViewAttachedToWindow(View v) {
-                }
+    private final View.OnClickListener mTextClickListener = v -> {
+        if (usedClickListener) {
+            usedClickListener = false;
+            return;
+        }
+        if (null != mSelectListener
+                && (null == mOperateWindow || !mOperateWindow.isShowing())) {
+            mSelectListener.onDismiss();
+        }
+        reset();
+        if (null != mSelectListener) {
+            mSelectListener.onClick(v);
+        }
+    };
 
-                @Override
-                public void onViewDetachedFromWindow(View v) {
-                    destroy();
-                }
-            });
-
-            mOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
-                @Override
-                public boolean onPreDraw() {
-                    if (isHideWhenScroll) {
-                        isHideWhenScroll = false;
-                        postShowSelectView(DEFAULT_SHOW_DURATION);
-                    }
-                    // 拿textView的x坐标
-                    if (0 == mTextViewMarginStart) {
-                        int[] location = new int[2];
-                        mTextView.getLocationInWindow(location);
-                        mTextViewMarginStart = location[0];
-                    }
-                    return true;
-                }
-            };
-            mTextView.getViewTreeObserver().addOnPreDrawListener(mOnPreDrawListener);
+    private final View.OnLongClickListener mTextLongClickListener = v -> {
+        switchTextView((TextView) v);
+        return onTextLongClick();
+    };
+
+    private final LinkMovementMethodInterceptor mMovementMethod = new LinkMovementMethodInterceptor();
+
+    private boolean onTextLongClick() {
+        installListeners();
 
-            // 根布局监听
-            mRootTouchListener = new View.OnTouchListener() {
-                @Override
-                public boolean onTouch(View v, MotionEvent event) {
+        if (null == mOperateWindow) {
+            mOperateWindow = new OperateWindow(mContext);
+        }
+
+        if (mSelectAll) {
+            showAllView();
+        } else {
+            showSelectView(mTouchX, mTouchY);
+        }
+        if (null != mSelectListener) {
+            mSelectListener.onLongClick(mTextView);
+        }
+        return true;
+    }
+
+    /**
+     * 监听注册表
+     * 每个监听在一次 attach 里只装一次，detach、切换 textView 或 destroy 时移除
+     * 绘制和滚动监听只在显示选区时装上，见 {@link #resumeTreeObservers()}
+     */
+    private void installListeners() {
+        if (mAttachListenerView != mTextView) {
+            if (null != mAttachListenerView) {
+                mAttachListenerView.removeOnAttachStateChangeListener(mAttachStateListener);
+            }
+            mTextView.addOnAttachStateChangeListener(mAttachStateListener);
+            mAttachListenerView = mTextView;
+        }
+        // 根布局监听 setOnTouchListener是替换，别的helper可能替换过，每次都设置
+        mRootTouchView = mTextView.getRootView();
+        mRootTouchView.setOnTouchListener(mRootTouchListener);
+    }
+
+    private void uninstallListeners() {
+        removeTreeObserverListeners();
+        if (null != mAttachListenerView) {
+            mAttachListenerView.removeOnAttachStateChangeListener(mAttachStateListener);
+            mAttachListenerView = null;
+        }
+        if (null != mRootTouchView) {
+            mRootTouchView.setOnTouchListener(null);
+            mRootTouchView = null;
+        }
+    }
+
+    /**
+     * 显示选区时装上绘制和滚动监听
+     * 没有选区时每帧不再回调
+     */
+    private void resumeTreeObservers() {
+        ViewTreeObserver observer = mTextView.getViewTreeObserver();
+        if (mObservedTreeObserver != observer) {
+            removeTreeObserverListeners();
+            observer.addOnPreDrawListener(mOnPreDrawListener);
+            observer.addOnScrollChangedListener(mOnScrollChangedListener);
+            mObservedTreeObserver = observer;
+        }
+        // 拿textView的x坐标，每次选择只取一次
+        mTextView.getLocationInWindow(mTempLocation);
+        mTextViewMarginStart = mTempLocation[0];
+    }
+
+    private void removeTreeObserverListeners() {
+        if (null == mObservedTreeObserver) {
+            return;
+        }
+        // 失效的ViewTreeObserver里的监听已经合并到textView当前的ViewTreeObserver
+        ViewTreeObserver observer = mObservedTreeObserver.isAlive() || null == mTextView
+                ? mObservedTreeObserver : mTextView.getViewTreeObserver();
+        if (observer.isAlive()) {
+            observer.removeOnPreDrawListener(mOnPreDrawListener);
+            observer.removeOnScrollChangedListener(mOnScrollChangedListener);
+        }
+        mObservedTreeObserver = null;
+    }
+
+    private final View.OnAttachStateChangeListener mAttachStateListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            if (mListScoped) {
+                // 已经切换到别的textView就不用管
+                if (v == mTextView) {
                     reset();
-                    mTextView.getRootView().setOnTouchListener(null);
-                    return false;
-                }
-            };
-            mTextView.getRootView().setOnTouchListener(mRootTouchListener);
-
-            mOnScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
-                @Override
-                public void onScrollChanged() {
-                    if (mScrollShow) {
-                        if (!isHideWhenScroll && !isHide) {
-                            isHideWhenScroll = true;
-                            if (mOperateWindow != null) {
-                                mOperateWindow.dismiss();
-                            }
-                            if (mStartHandle != null) {
-                                mStartHandle.dismiss();
-                            }
-                            if (mEndHandle != null) {
-                                mEndHandle.dismiss();
-                            }
-                        }
-                        if (null != mSelectListener) {
-                            mSelectListener.onScrolling();
-                        }
-                    } else {
-                        reset();
+                    if (null != mRootTouchView) {
+                        mRootTouchView.setOnTouchListener(null);
+                        mRootTouchView = null;
                     }
                 }
-            };
-            mTextView.getViewTreeObserver().addOnScrollChangedListener(mOnScrollChangedListener);
-
-            if (null == mOperateWindow) {
-                mOperateWindow = new OperateWindow(mContext);
+            } else {
+                destroy();
             }
+        }
+    };
 
-            if (mSelectAll) {
-                showAllView();
-            } else {
-                showSelectView(mTouchX, mTouchY);
+    private final ViewTreeObserver.OnPreDrawListener mOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            if (null != mPendingShow && null != mTextView.getLayout()) {
+                Runnable pendingShow = mPendingShow;
+                mPendingShow = null;
+                pendingShow.run();
             }
-            if (null != mSelectListener) {
-                mSelectListener.onLongClick(mTextView);
+            if (isHideWhenScroll) {
+                isHideWhenScroll = false;
+                postShowSelectView(DEFAULT_SHOW_DURATION);
             }
             return true;
-        });
-        // 此setMovementMethod可被修改
-        mTextView.setMovementMethod(new LinkMovementMethodInterceptor());
+        }
+    };
+
+    private final View.OnTouchListener mRootTouchListener = new View.OnTouchListener() {
+        @Override
+        public boolean onTouch(View v, MotionEvent event) {
+            reset();
+            v.setOnTouchListener(null);
+            mRootTouchView = null;
+            return false;
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            if (null != mMagnifier) {
+                mMagnifier.invalidatePosition();
+            }
+            if (mScrollShow) {
+                if (mScrollFollow) {
+                    if (!isHide) {
+                        postFollowScrollFrame();
+                    }
+                } else if (!isHideWhenScroll && !isHide) {
+                    isHideWhenScroll = true;
+                    if (mOperateWindow != null) {
+                        mOperateWindow.dismiss();
+                    }
+                    if (mStartHandle != null) {
+                        mStartHandle.dismiss();
+                    }
+                    if (mEndHandle != null) {
+                        mEndHandle.dismiss();
+                    }
+                }
+                if (null != mSelectListener) {
+                    mSelectListener.onScrolling();
+                }
+            } else {
+                reset();
+            }
+        }
+    };
+
+    private boolean mFollowScrollFramePosted;
+    private Choreographer.FrameCallback mFollowScrollFrameCallback;
+
+    /**
+     * 滚动时每帧只移动一次弹窗和游标
+     */
+    private void postFollowScrollFrame() {
+        if (mFollowScrollFramePosted) {
+            return;
+        }
+        if (null == mFollowScrollFrameCallback) {
+            mFollowScrollFrameCallback = frameTimeNanos -> {
+                mFollowScrollFramePosted = false;
+                followScroll();
+            };
+        }
+        mFollowScrollFramePosted = true;
+        Choreographer.getInstance().postFrameCallback(mFollowScrollFrameCallback);
+    }
+
+    private void cancelFollowScrollFrame() {
+        if (mFollowScrollFramePosted) {
+            mFollowScrollFramePosted = false;
+            Choreographer.getInstance().removeFrameCallback(mFollowScrollFrameCallback);
+        }
+    }
+
+    /**
+     * 用 PopupWindow.update 移动已经显示的弹窗和游标
+     * 所在行不在textView的可见区域时只设置不可见，不移除窗口
+     */
+    private void followScroll() {
+        if (isHide || null == mTextView) {
+            return;
+        }
+        if (!mTextView.getGlobalVisibleRect(mVisibleRect)) {
+            mVisibleRect.setEmpty();
+        }
+        if (null != mStartHandle) {
+            mStartHandle.follow();
+        }
+        if (null != mEndHandle) {
+            mEndHandle.follow();
+        }
+        if (null != mOperateWindow) {
+            mOperateWindow.follow();
+        }
+    }
+
+    /**
+     * 选区的行在屏幕上是否可见
+     *
+     * @param lineTop    行顶部在窗口中的y
+     * @param lineBottom 行底部在窗口中的y
+     */
+    private boolean isLineVisible(int lineTop, int lineBottom) {
+        return !mVisibleRect.isEmpty() && lineBottom > mVisibleRect.top && lineTop < mVisibleRect.bottom;
     }
 
     private void postShowSelectView(int duration) {
@@ -444,7 +957,12 @@ public class SelectTextHelper {
 
     private void hideSelectView() {
         isHide = true;
+        mPendingShow = null;
+        isHideWhenScroll = false;
         usedClickListener = false;
+        cancelFollowScrollFrame();
+        // 没有选区时挂起绘制和滚动监听
+        removeTreeObserverListeners();
         if (mStartHandle != null) {
             mStartHandle.dismiss();
         }
@@ -457,7 +975,10 @@ public class SelectTextHelper {
     }
 
     private void resetSelectionInfo() {
-        mSelectionInfo.mSelectionContent = null;
+        mSelectionInfo.mSelected = false;
+        if (mHighlight != null) {
+            mHighlight.clear();
+        }
         if (mSpannable != null && mSpan != null) {
             mSpannable.removeSpan(mSpan);
             mSpan = null;
@@ -467,15 +988,36 @@ public class SelectTextHelper {
     private void showSelectView(int x, int y) {
         reset();
         isHide = false;
+        resumeTreeObservers();
         if (mStartHandle == null) mStartHandle = new CursorHandle(true);
         if (mEndHandle == null) mEndHandle = new CursorHandle(false);
 
+        if (!prepareText()) {
+            mPendingShow = () -> selectAt(x, y);
+            return;
+        }
+        selectAt(x, y);
+    }
+
+    /**
+     * 选中触摸位置，Layout 已经可用
+     */
+    private void selectAt(int x, int y) {
         int startOffset = getPreciseOffset(mTextView, x, y);
         int endOffset = startOffset + DEFAULT_SELECTION_LENGTH;
-        if (mTextView.getText() instanceof Spannable) {
-            mSpannable = (Spannable) mTextView.getText();
+        if (mGranularity != GRANULARITY_CHARACTER && startOffset >= 0) {
+            // 选中所在的词、句、段
+            int[] range = SelectTextBoundaryIndex.obtain(mTextView).getRange(mGranularity, startOffset);
+            if (null != range && !TextUtils.isGraphic(mTextView.getText().subSequence(range[0], range[1]))) {
+                range = null;
+            }
+            if (null != range) {
+                startOffset = range[0];
+                endOffset = range[1];
+            }
         }
-        if (mSpannable == null || endOffset - 1 >= mTextView.getText().length()) {
+        if (endOffset - 1 >= mTextView.getText().length()) {
+            hideSelectView();
             return;
         }
         selectText(startOffset, endOffset);
@@ -494,7 +1036,7 @@ public class SelectTextHelper {
         }
         // Log.e("SelectableTextHelper", " showOperateWindow ");
         // 开启已经全选无弹窗
-        if (mSelectedAllNoPop && mSelectionInfo.mSelectionContent.equals(mTextView.getText().toString())) {
+        if (mSelectedAllNoPop && isSelectAll()) {
             mOperateWindow.dismiss();
             if (mSelectListener != null) {
                 mSelectListener.onSelectAllShowCustomPop();
@@ -511,15 +1053,18 @@ public class SelectTextHelper {
     private void showAllView() {
         reset();
         isHide = false;
+        resumeTreeObservers();
         if (mStartHandle == null) mStartHandle = new CursorHandle(true);
         if (mEndHandle == null) mEndHandle = new CursorHandle(false);
 
-        if (mTextView.getText() instanceof Spannable) {
-            mSpannable = (Spannable) mTextView.getText();
-        }
-        if (mSpannable == null) {
+        if (!prepareText()) {
+            mPendingShow = this::selectWholeText;
             return;
         }
+        selectWholeText();
+    }
+
+    private void selectWholeText() {
         selectText(0, mTextView.getText().length());
         showCursorHandle(mStartHandle);
         showCursorHandle(mEndHandle);
@@ -527,9 +1072,10 @@ public class SelectTextHelper {
     }
 
     private void showCursorHandle(CursorHandle cursorHandle) {
-        Layout layout = mTextView.getLayout();
+        SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(mTextView);
+        if (index == null) return;
         int offset = cursorHandle.isLeft ? mSelectionInfo.mStart : mSelectionInfo.mEnd;
-        cursorHandle.show((int) layout.getPrimaryHorizontal(offset), layout.getLineBottom(layout.getLineForOffset(offset)));
+        cursorHandle.show((int) index.getPrimaryHorizontal(offset), index.getLineBottom(index.getLineForOffset(offset)));
     }
 
     private void selectText(int startPos, int endPos) {
@@ -545,15 +1091,28 @@ public class SelectTextHelper {
             mSelectionInfo.mEnd = temp;
         }
 
-        if (mSpannable != null) {
-            if (mSpan == null) {
-                mSpan = new BackgroundColorSpan(mSelectedColor);
-            }
+        if (mOverlayActive || mSpannable != null) {
 //            Log.e("SelectableTextHelper", "start: " + mSelectionInfo.mStart + "   end: " + mSelectionInfo.mEnd);
-            mSelectionInfo.mSelectionContent = mSpannable.subSequence(mSelectionInfo.mStart, mSelectionInfo.mEnd).toString();
-            mSpannable.setSpan(mSpan, mSelectionInfo.mStart, mSelectionInfo.mEnd, Spanned.SPAN_INCLUSIVE_EXCLUSIVE);
+            mSelectionInfo.mSelected = true;
+            if (mOverlayActive) {
+                if (mHighlight == null) {
+                    mHighlight = new SelectTextHighlightDrawable(mTextView, mSelectedColor);
+                    mTextView.getOverlay().add(mHighlight);
+                }
+                mHighlight.setSelection(mSelectionInfo.mStart, mSelectionInfo.mEnd);
+            } else {
+                if (mSpan == null) {
+                    mSpan = new BackgroundColorSpan(mSelectedColor);
+                }
+                // 已存在的span再次setSpan只会移动位置
+                mSpannable.setSpan(mSpan, mSelectionInfo.mStart, mSelectionInfo.mEnd, Spanned.SPAN_INCLUSIVE_EXCLUSIVE);
+            }
+            if (null != mMagnifier) {
+                mMagnifier.invalidateSnapshot();
+            }
             if (mSelectListener != null) {
-                mSelectListener.onTextSelected(mSelectionInfo.mSelectionContent);
+                mSelectListener.onSelectionRangeChanged(mSelectionInfo.mStart, mSelectionInfo.mEnd);
+                mSelectListener.onTextSelected(new SelectionText(mTextView.getText(), mSelectionInfo.mStart, mSelectionInfo.mEnd));
             }
         }
     }
@@ -572,29 +1131,29 @@ public class SelectTextHelper {
         private int mWidth;
         private int mHeight;
         private SelectTextPopAdapter listAdapter;
+        private GridLayoutManager mLayoutManager;
+        private final List<SelectTextMenuItem> mVisibleItems = new ArrayList<>();
 
-        private RecyclerView rv_content;
+        private View contentView;
+        private RecyclerView rv_content;// RecyclerView 弹窗
+        private SelectTextMenuView mMenuView;// 轻量弹窗
         private ImageView iv_arrow;
 
+        // 测量结果，配置或item变化时才重新测量
+        private SelectTextMetrics mMeasuredMetrics;
+        private List<SelectTextMenuItem> mMeasuredItems;
+        private int mDeviceWidth;
+        private int mArrowMargin;// iv_arrow的margin
+        private int mArrowMinX;// 箭头离弹窗边缘的最小距离
+
         public OperateWindow(final Context context) {
-            View contentView = LayoutInflater.from(context).inflate(R.layout.pop_operate, null);
+            // 同样式的弹窗内容可能已经预先inflate好
+            contentView = SelectTextWindowPool.obtainOperateView(context,
+                    getOperateLayout(mLightweightMenu), mPopBgResource, mPopArrowImg);
             rv_content = contentView.findViewById(R.id.rv_content);
+            mMenuView = contentView.findViewById(R.id.menu_content);
             iv_arrow = contentView.findViewById(R.id.iv_arrow);
-            if (0 != mPopBgResource) {
-                rv_content.setBackgroundResource(mPopBgResource);
-            }
-            if (0 != mPopArrowImg) {
-                iv_arrow.setBackgroundResource(mPopArrowImg);
-            }
 
-            int size = itemTextList.size();
-            // 宽 个数超过mPopSpanCount 取 mPopSpanCount
-            mWidth = dp2px(12 * 4 + 52 * (Math.min(size, mPopSpanCount)));
-            // 行数
-            int row = size / mPopSpanCount // 行数
-                    + ((size % mPopSpanCount) == 0 ? 0 : 1);// 有余数 加一行
-            // 高
-            mHeight = dp2px(12 * (1 + row) + 52 * row + 5);
             mWindow = new PopupWindow(
                     contentView,
                     ViewGroup.LayoutParams.WRAP_CONTENT,
@@ -602,38 +1161,146 @@ public class SelectTextHelper {
                     false);
             mWindow.setClippingEnabled(false);
 
-            listAdapter = new SelectTextPopAdapter(context, itemTextList);
-            listAdapter.setOnclickItemListener(position -> {
+            SelectTextPopAdapter.onClickItemListener itemClickListener = item -> {
                 dismiss();
-                itemListenerList.get(position).onClick();
-            });
-            if (rv_content != null) {
-                rv_content.setAdapter(listAdapter);
+                // 按添加的顺序分发，id 相同的 item 不会混淆
+                int index = item.getIndex();
+                if (index >= 0 && index < itemListenerList.size()) {
+                    itemListenerList.get(index).onClick();
+                }
+            };
+            if (null != mMenuView) {
+                mMenuView.setItems(itemTextList);
+                mMenuView.setSpanCount(mPopSpanCount);
+                mMenuView.setOnclickItemListener(itemClickListener);
+            } else {
+                listAdapter = new SelectTextPopAdapter(context, itemTextList);
+                listAdapter.setOnclickItemListener(itemClickListener);
+                mLayoutManager = new GridLayoutManager(context, getSpanCount(), GridLayoutManager.VERTICAL, false);
+                if (rv_content != null) {
+                    rv_content.setLayoutManager(mLayoutManager);
+                    rv_content.setAdapter(listAdapter);
+                }
             }
         }
 
-        public void show() {
-            int deviceWidth = getDisplayWidth();
-            int size = itemTextList.size();
-            if (size > mPopSpanCount) {
-                rv_content.setLayoutManager(new GridLayoutManager(mContext, mPopSpanCount, GridLayoutManager.VERTICAL, false));
+        /**
+         * 当前显示的item
+         */
+        private List<SelectTextMenuItem> getShownItems() {
+            return null != mMenuView ? mMenuView.getItems() : listAdapter.getList();
+        }
+
+        /**
+         * 每行个数 个数超过mPopSpanCount 取 mPopSpanCount
+         */
+        private int getSpanCount() {
+            return Math.max(1, Math.min(getShownItems().size(), mPopSpanCount));
+        }
+
+        /**
+         * 测量弹窗大小
+         * 按实际的item测量，itemWrapContent或文字较长时不是固定的52dp
+         * 字体、密度、屏幕宽度和显示的item都没变时直接使用上一次的结果
+         */
+        private void measureIfNeeded() {
+            // 配置没变时是同一个快照
+            SelectTextMetrics metrics = SelectTextMetrics.obtain(mContext);
+            // 显示的item没变时列表不会替换
+            List<SelectTextMenuItem> items = getShownItems();
+            if (mMeasuredMetrics == metrics && mMeasuredItems == items) {
+                return;
+            }
+            mMeasuredMetrics = metrics;
+            mMeasuredItems = items;
+
+            mDeviceWidth = metrics.getWidthPixels();
+            mArrowMargin = metrics.dp2px(16);
+            mArrowMinX = metrics.dp2px(4);
+            if (null != mLayoutManager) {
+                mLayoutManager.setSpanCount(getSpanCount());
+            }
+            contentView.measure(
+                    View.MeasureSpec.makeMeasureSpec(mDeviceWidth, View.MeasureSpec.AT_MOST),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+            mWidth = contentView.getMeasuredWidth();
+            mHeight = contentView.getMeasuredHeight();
+            mWindow.setWidth(mWidth);
+            mWindow.setHeight(mHeight);
+        }
+
+        /**
+         * 按当前选区过滤显示的item
+         */
+        private void updateVisibleItems() {
+            if (null == mItemVisibleFilter) {
+                return;
+            }
+            mVisibleItems.clear();
+            for (SelectTextMenuItem item : itemTextList) {
+                if (mItemVisibleFilter.isVisible(item, SelectTextHelper.this)) {
+                    mVisibleItems.add(item);
+                }
+            }
+            if (null != mMenuView) {
+                mMenuView.setItems(mVisibleItems);
             } else {
-                rv_content.setLayoutManager(new GridLayoutManager(mContext, size, GridLayoutManager.VERTICAL, false));
+                listAdapter.submitList(mVisibleItems);
             }
+        }
+
+        public void show() {
+            updateVisibleItems();
+            measureIfNeeded();
+            if (!computePosition()) return;
+            setWindowHidden(mWindow, contentView, false);
+            mWindow.showAtLocation(mTextView, Gravity.NO_GRAVITY, mPosX, mPosY);
+            iv_arrow.setTranslationX(mArrowTranslationX);
+        }
+
+        /**
+         * 跟随滚动
+         * 只移动已经显示的弹窗，选区起始行不可见时隐藏，不接收触摸
+         */
+        public void follow() {
+            if (!mWindow.isShowing() || !computePosition()) {
+                return;
+            }
+            SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(mTextView);
+            int line = index.getLineForOffset(mSelectionInfo.mStart);
+            int top = mTempCoors[1] + mTextView.getTotalPaddingTop();
+            boolean visible = isLineVisible(top + index.getLineTop(line), top + index.getLineBottom(line));
+            setWindowHidden(mWindow, contentView, !visible);
+            if (visible) {
+                mWindow.update(mPosX, mPosY, -1, -1);
+                iv_arrow.setTranslationX(mArrowTranslationX);
+            }
+        }
+
+        private int mPosX;
+        private int mPosY;
+        private int mArrowTranslationX;
+
+        /**
+         * 计算弹窗位置和箭头位置
+         */
+        private boolean computePosition() {
+            int deviceWidth = mDeviceWidth;
 
             mTextView.getLocationInWindow(mTempCoors);
-            Layout layout = mTextView.getLayout();
+            SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(mTextView);
+            if (index == null) return false;
             int posX;
             int posXTemp = 0;
-            int startX = (int) layout.getPrimaryHorizontal(mSelectionInfo.mStart) + mTempCoors[0];
-            int startY = layout.getLineTop(layout.getLineForOffset(mSelectionInfo.mStart));
-            int endY = layout.getLineTop(layout.getLineForOffset(mSelectionInfo.mEnd));
+            int startX = (int) index.getPrimaryHorizontal(mSelectionInfo.mStart) + mTempCoors[0];
+            int startY = index.getLineTop(index.getLineForOffset(mSelectionInfo.mStart));
+            int endY = index.getLineTop(index.getLineForOffset(mSelectionInfo.mEnd));
             int posY = startY + mTempCoors[1] - mHeight;
             if (posY < 0) posY = 0;
 
             // 在同一行
             if (startY == endY) {
-                int endX = (int) layout.getPrimaryHorizontal(mSelectionInfo.mEnd) + mTempCoors[0];
+                int endX = (int) index.getPrimaryHorizontal(mSelectionInfo.mEnd) + mTempCoors[0];
                 // posX = (起始点 + 终点) / 2 - (向左移动 mWidth / 2)
                 posX = (startX + endX) / 2 - mWidth / 2;
             } else {
@@ -648,12 +1315,13 @@ public class SelectTextHelper {
                 posX = deviceWidth - mWidth;
             }
 
-            mWindow.showAtLocation(mTextView, Gravity.NO_GRAVITY, posX, posY);
+            mPosX = posX;
+            mPosY = posY;
             // view中心位置
             int arrowTranslationX;
             // 在中间
             if (posXTemp == 0) {
-                arrowTranslationX = mWidth / 2 - dp2px(16);// - dp2px(mContext, 16) 是 的margin
+                arrowTranslationX = mWidth / 2 - mArrowMargin;// - mArrowMargin 是 的margin
             }
             // 在左边 箭头就是两坐标的中间 （+ mWidth / 2 是还原坐标）
             else if (posXTemp < 0) {
@@ -662,14 +1330,15 @@ public class SelectTextHelper {
             // 在右边 箭头就是两坐标的中间 - 一个mWidth / 2的位置 （+ mWidth / 2 是还原坐标）
             else {
                 // arrowTranslationX =     两坐标中心点       - 弹窗左侧点 - iv_arrow的margin
-                arrowTranslationX = (posXTemp + mWidth / 2) - posX - dp2px(16);
+                arrowTranslationX = (posXTemp + mWidth / 2) - posX - mArrowMargin;
             }
-            if (arrowTranslationX < dp2px(4)) {
-                arrowTranslationX = dp2px(4);
-            } else if (arrowTranslationX > mWidth - dp2px(4)) {
-                arrowTranslationX = mWidth - dp2px(4);
+            if (arrowTranslationX < mArrowMinX) {
+                arrowTranslationX = mArrowMinX;
+            } else if (arrowTranslationX > mWidth - mArrowMinX) {
+                arrowTranslationX = mWidth - mArrowMinX;
             }
-            iv_arrow.setTranslationX(arrowTranslationX);
+            mArrowTranslationX = arrowTranslationX;
+            return true;
         }
 
         public void dismiss() {
@@ -686,6 +1355,21 @@ public class SelectTextHelper {
             return mWindow.isShowing();
         }
 
+        /**
+         * 归还弹窗内容给缓存池，之后不能再使用
+         */
+        public void recycle() {
+            mWindow.dismiss();
+            if (null != mMenuView) {
+                mMenuView.setOnclickItemListener(null);
+            } else if (null != rv_content) {
+                rv_content.setAdapter(null);
+                rv_content.setLayoutManager(null);
+            }
+            SelectTextWindowPool.recycleOperateView(mContext,
+                    getOperateLayout(mLightweightMenu), mPopBgResource, mPopArrowImg, contentView);
+        }
+
     }
 
     /**
@@ -694,9 +1378,8 @@ public class SelectTextHelper {
     private class CursorHandle extends View {
 
         private PopupWindow mPopupWindow;
-        private Paint mPaint;
+        private Bitmap mHandleBitmap;// 共用的游标图片
 
-        private int mCircleRadius = mCursorHandleSize / 2;
         private int mWidth = mCursorHandleSize;
         private int mHeight = mCursorHandleSize;
         private int mPadding = 32;// 游标padding
@@ -705,8 +1388,9 @@ public class SelectTextHelper {
         public CursorHandle(boolean isLeft) {
             super(mContext);
             this.isLeft = isLeft;
-            mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            mPaint.setColor(mCursorHandleColor);
+            mHandleBitmap = getHandleBitmap(isLeft);
+            // 内容只在换方向时变化，移动窗口时不重新绘制
+            setLayerType(View.LAYER_TYPE_HARDWARE, null);
 
             mPopupWindow = new PopupWindow(this);
             mPopupWindow.setClippingEnabled(false);
@@ -715,14 +1399,23 @@ public class SelectTextHelper {
             invalidate();
         }
 
+        /**
+         * 同样颜色、大小、方向的游标共用一张图片
+         */
+        private Bitmap getHandleBitmap(boolean left) {
+            int drawableRes = left ? mCursorHandleLeftRes : mCursorHandleRightRes;
+            if (0 != drawableRes) {
+                Bitmap bitmap = SelectTextHandleCache.getHandle(mContext, drawableRes, mCursorHandleSize);
+                if (null != bitmap) {
+                    return bitmap;
+                }
+            }
+            return SelectTextHandleCache.getHandle(mCursorHandleColor, mCursorHandleSize, left);
+        }
+
         @Override
         protected void onDraw(Canvas canvas) {
-            canvas.drawCircle(mCircleRadius + mPadding, mCircleRadius, mCircleRadius, mPaint);
-            if (isLeft) {
-                canvas.drawRect(mCircleRadius + mPadding, 0, mCircleRadius * 2 + mPadding, mCircleRadius, mPaint);
-            } else {
-                canvas.drawRect(mPadding, 0, mCircleRadius + mPadding, mCircleRadius, mPaint);
-            }
+            canvas.drawBitmap(mHandleBitmap, mPadding, 0, null);
         }
 
         private int mAdjustX;
@@ -737,55 +1430,130 @@ public class SelectTextHelper {
                 case MotionEvent.ACTION_DOWN:
                     mBeforeDragStart = mSelectionInfo.mStart;
                     mBeforeDragEnd = mSelectionInfo.mEnd;
+                    mLastDragRawX = (int) event.getRawX();
+                    mLastDragRawY = (int) event.getRawY();
+                    mLastDragTime = event.getEventTime();
+                    mFastDrag = false;
+                    mFastDragPxPerMs = SelectTextMetrics.obtain(mContext).getDensity() * FAST_DRAG_DP_PER_MS;
                     mAdjustX = (int) event.getX();
                     mAdjustY = (int) event.getY();
                     break;
                 case MotionEvent.ACTION_UP:
                 case MotionEvent.ACTION_CANCEL:
+                    flushDragFrame();
                     showOperateWindow();
-                    if (mMagnifierShow) {
-                        // android 9 放大镜
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
-                                && null != mMagnifier) {
-                            mMagnifier.dismiss();
-                        }
+                    if (mMagnifierShow && null != mMagnifier) {
+                        mMagnifier.dismiss();
                     }
                     break;
                 case MotionEvent.ACTION_MOVE:
-                    mOperateWindow.dismiss();
-                    if (null != mSelectListener) {
-                        mSelectListener.onDismissCustomPop();
-                    }
                     int rawX = (int) event.getRawX();
                     int rawY = (int) event.getRawY();
-                    // x y不准 x 减去textView距离x轴距离值  y减去字体大小的像素值
-                    update(rawX + mAdjustX - mWidth - mTextViewMarginStart,
-                            rawY + mAdjustY - mHeight - (int) mTextView.getTextSize());
-                    if (mMagnifierShow) {
-                        // android 9 放大镜功能
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
-                            if (null == mMagnifier) {
-                                mMagnifier = new Magnifier(mTextView);
-                                mMagnifier.getWidth();
-                            }
-                            final int[] viewPosition = new int[2];
-                            mTextView.getLocationOnScreen(viewPosition);
-                            int magnifierX = rawX - viewPosition[0];
-                            int magnifierY = rawY - viewPosition[1] - dp2px(32);
-                            mMagnifier.show(magnifierX, Math.max(magnifierY, 0));
+                    int moveCount = event.getHistorySize() + 1;
+                    if (mDragCoalesce && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                        // 只记录最新位置，等下一帧统一处理
+                        mPendingRawX = rawX;
+                        mPendingRawY = rawY;
+                        mPendingMoveCount += moveCount;
+                        if (!mDragFramePosted) {
+                            mDragFramePosted = true;
+                            Choreographer.getInstance().postFrameCallback(getDragFrameCallback());
                         }
+                    } else {
+                        mLastDragFrameMoveCount = moveCount;
+                        onDrag(rawX, rawY);
                     }
                     break;
             }
             return true;
         }
 
+        private int mPendingRawX;
+        private int mPendingRawY;
+        private int mPendingMoveCount;
+        private boolean mDragFramePosted;
+        private Choreographer.FrameCallback mDragFrameCallback;
+
+        private Choreographer.FrameCallback getDragFrameCallback() {
+            if (null == mDragFrameCallback) {
+                mDragFrameCallback = frameTimeNanos -> {
+                    mDragFramePosted = false;
+                    runPendingDrag();
+                };
+            }
+            return mDragFrameCallback;
+        }
+
+        /**
+         * 抬手前把还没处理的移动事件处理掉
+         */
+        private void flushDragFrame() {
+            cancelDragFrame();
+            runPendingDrag();
+        }
+
+        private void cancelDragFrame() {
+            if (mDragFramePosted) {
+                mDragFramePosted = false;
+                Choreographer.getInstance().removeFrameCallback(mDragFrameCallback);
+            }
+        }
+
+        private void runPendingDrag() {
+            if (mPendingMoveCount == 0) {
+                return;
+            }
+            mLastDragFrameMoveCount = mPendingMoveCount;
+            mPendingMoveCount = 0;
+            onDrag(mPendingRawX, mPendingRawY);
+        }
+
+        /**
+         * 按最新的手指位置更新选区、游标、弹窗和放大镜
+         */
+        private int mLastDragRawX;
+        private int mLastDragRawY;
+        private long mLastDragTime;
+        private boolean mFastDrag;
+        private float mFastDragPxPerMs;
+
+        private void onDrag(int rawX, int rawY) {
+            if (mVelocitySnap) {
+                long now = SystemClock.uptimeMillis();
+                long duration = now - mLastDragTime;
+                if (duration > 0) {
+                    float distance = (float) Math.hypot(rawX - mLastDragRawX, rawY - mLastDragRawY);
+                    mFastDrag = distance / duration > mFastDragPxPerMs;
+                }
+                mLastDragRawX = rawX;
+                mLastDragRawY = rawY;
+                mLastDragTime = now;
+            }
+            mOperateWindow.dismiss();
+            if (null != mSelectListener) {
+                mSelectListener.onDismissCustomPop();
+            }
+            // x y不准 x 减去textView距离x轴距离值  y减去字体大小的像素值
+            update(rawX + mAdjustX - mWidth - mTextViewMarginStart,
+                    rawY + mAdjustY - mHeight - (int) mTextView.getTextSize());
+            if (mMagnifierShow) {
+                // android 9 以下用截图放大
+                if (null == mMagnifier) {
+                    mMagnifier = new SelectTextMagnifier(mTextView);
+                }
+                mMagnifier.show(rawX, rawY);
+            }
+        }
+
         private void changeDirection() {
             isLeft = !isLeft;
+            mHandleBitmap = getHandleBitmap(isLeft);
             invalidate();
         }
 
         public void dismiss() {
+            cancelDragFrame();
+            mPendingMoveCount = 0;
             mPopupWindow.dismiss();
         }
 
@@ -803,9 +1571,9 @@ public class SelectTextHelper {
             y -= mTempCoors[1];
 
             int offset = getHysteresisOffset(mTextView, x, y, oldOffset);
+            offset = snapOffset(offset, isLeft ? mBeforeDragEnd : mBeforeDragStart);
 
             if (offset != oldOffset) {
-                resetSelectionInfo();
                 if (isLeft) {
                     if (offset > mBeforeDragEnd) {
                         CursorHandle handle = getCursorHandle(false);
@@ -834,19 +1602,55 @@ public class SelectTextHelper {
             }
         }
 
+        /**
+         * 按选择粒度吸附到边界，快速拖动时按词
+         * 吸附后和另一端重合就不吸附
+         */
+        private int snapOffset(int offset, int otherOffset) {
+            int granularity = mVelocitySnap && mFastDrag
+                    ? Math.max(mGranularity, GRANULARITY_WORD) : mGranularity;
+            if (granularity == GRANULARITY_CHARACTER || offset < 0) {
+                return offset;
+            }
+            int snapped = SelectTextBoundaryIndex.obtain(mTextView).snap(granularity, offset);
+            return snapped == otherOffset ? offset : snapped;
+        }
+
         private void updateCursorHandle() {
             mTextView.getLocationInWindow(mTempCoors);
-            Layout layout = mTextView.getLayout();
+            SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(mTextView);
+            if (index == null) return;
             if (isLeft) {
-                mPopupWindow.update((int) layout.getPrimaryHorizontal(mSelectionInfo.mStart) - mWidth + getExtraX(),
-                        layout.getLineBottom(layout.getLineForOffset(mSelectionInfo.mStart)) + getExtraY(), -1, -1);
+                mPopupWindow.update((int) index.getPrimaryHorizontal(mSelectionInfo.mStart) - mWidth + getExtraX(),
+                        index.getLineBottom(index.getLineForOffset(mSelectionInfo.mStart)) + getExtraY(), -1, -1);
             } else {
-                mPopupWindow.update((int) layout.getPrimaryHorizontal(mSelectionInfo.mEnd) + getExtraX(),
-                        layout.getLineBottom(layout.getLineForOffset(mSelectionInfo.mEnd)) + getExtraY(), -1, -1);
+                mPopupWindow.update((int) index.getPrimaryHorizontal(mSelectionInfo.mEnd) + getExtraX(),
+                        index.getLineBottom(index.getLineForOffset(mSelectionInfo.mEnd)) + getExtraY(), -1, -1);
+            }
+        }
+
+        /**
+         * 跟随滚动
+         * 只移动已经显示的游标，所在行不可见时隐藏，不接收触摸
+         */
+        public void follow() {
+            if (!mPopupWindow.isShowing()) {
+                return;
+            }
+            SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(mTextView);
+            if (index == null) return;
+            int line = index.getLineForOffset(isLeft ? mSelectionInfo.mStart : mSelectionInfo.mEnd);
+            mTextView.getLocationInWindow(mTempCoors);
+            int top = mTempCoors[1] + mTextView.getTotalPaddingTop();
+            boolean visible = isLineVisible(top + index.getLineTop(line), top + index.getLineBottom(line));
+            setWindowHidden(mPopupWindow, this, !visible);
+            if (visible) {
+                updateCursorHandle();
             }
         }
 
         public void show(int x, int y) {
+            setWindowHidden(mPopupWindow, this, false);
             mTextView.getLocationInWindow(mTempCoors);
             int offset = isLeft ? mWidth : 0;
             mPopupWindow.showAtLocation(mTextView, Gravity.NO_GRAVITY, x - offset + getExtraX(), y + getExtraY());
@@ -872,7 +1676,43 @@ public class SelectTextHelper {
     private class SelectionInfo {
         public int mStart;
         public int mEnd;
-        public String mSelectionContent;
+        public boolean mSelected;
+    }
+
+    /**
+     * 选中文本的视图
+     * 不拷贝文本，toString() 时才生成字符串
+     */
+    private static final class SelectionText implements CharSequence {
+        private final CharSequence mSource;
+        private final int mStart;
+        private final int mEnd;
+
+        SelectionText(CharSequence source, int start, int end) {
+            mSource = source;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        public int length() {
+            return mEnd - mStart;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return mSource.charAt(mStart + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return mSource.subSequence(mStart + start, mStart + end);
+        }
+
+        @Override
+        public String toString() {
+            return TextUtils.substring(mSource, mStart, mEnd);
+        }
     }
 
     /**
@@ -897,22 +1737,27 @@ public class SelectTextHelper {
                 x += widget.getScrollX();
                 y += widget.getScrollY();
 
-                Layout layout = widget.getLayout();
-                int line = layout.getLineForVertical(y);
-                int off = layout.getOffsetForHorizontal(line, x);
+                SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(widget);
+                if (index == null) {
+                    return super.onTouchEvent(widget, buffer, event);
+                }
+                int line = index.getLineForVertical(y);
+                int off = index.getOffsetForHorizontal(line, x);
 
-                ClickableSpan[] links =
-                        buffer.getSpans(off, off, ClickableSpan.class);
+                // 区间索引二分查找，不用每次 getSpans
+                SelectTextSpanIndex links = SelectTextSpanIndex.obtain(widget, buffer);
+                int link = links.indexOf(off);
 
-                if (links.length != 0) {
+                if (link >= 0) {
+                    ClickableSpan span = links.getSpan(link);
                     if (action == MotionEvent.ACTION_UP) {
                         // 长按
                         if (downLinkTime + ViewConfiguration.getLongPressTimeout() < System.currentTimeMillis()) {
                             return false;
                         }
                         // 点击
-                        if (links[0] instanceof URLSpan) {
-                            URLSpan url = (URLSpan) links[0];
+                        if (span instanceof URLSpan) {
+                            URLSpan url = (URLSpan) span;
                             if (!TextUtils.isEmpty(url.getURL())) {
                                 if (null != mSelectListener) {
                                     usedClickListener = true;
@@ -920,14 +1765,12 @@ public class SelectTextHelper {
                                 }
                                 return true;
                             } else {
-                                links[0].onClick(widget);
+                                span.onClick(widget);
                             }
                         }
                     } else if (action == MotionEvent.ACTION_DOWN) {
                         downLinkTime = System.currentTimeMillis();
-                        Selection.setSelection(buffer,
-                                buffer.getSpanStart(links[0]),
-                                buffer.getSpanEnd(links[0]));
+                        Selection.setSelection(buffer, links.getStart(link), links.getEnd(link));
                     }
                     return true;
                 } else {
@@ -943,15 +1786,15 @@ public class SelectTextHelper {
     // util
 
     public static int getPreciseOffset(TextView textView, int x, int y) {
-        Layout layout = textView.getLayout();
-        if (layout != null) {
-            int topVisibleLine = layout.getLineForVertical(y);
-            int offset = layout.getOffsetForHorizontal(topVisibleLine, x);
+        SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(textView);
+        if (index != null) {
+            int topVisibleLine = index.getLineForVertical(y);
+            int offset = index.getOffsetForHorizontal(topVisibleLine, x);
 
-            int offsetX = (int) layout.getPrimaryHorizontal(offset);
+            int offsetX = (int) index.getPrimaryHorizontal(offset);
 
             if (offsetX > x) {
-                return layout.getOffsetToLeftOf(offset);
+                return index.getLayout().getOffsetToLeftOf(offset);
             } else {
                 return offset;
             }
@@ -961,10 +1804,10 @@ public class SelectTextHelper {
     }
 
     public static int getHysteresisOffset(TextView textView, int x, int y, int previousOffset) {
-        final Layout layout = textView.getLayout();
-        if (layout == null) return -1;
+        final SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(textView);
+        if (index == null) return -1;
 
-        int line = layout.getLineForVertical(y);
+        int line = index.getLineForVertical(y);
 
         // The "HACK BLOCK"S in this function is required because of how Android Layout for
         // TextView works - if 'offset' equals to the last character of a line, then
@@ -979,11 +1822,11 @@ public class SelectTextHelper {
         //
         ////////////////////HACK BLOCK////////////////////////////////////////////////////
 
-        if (isEndOfLineOffset(layout, previousOffset)) {
+        if (isEndOfLineOffset(index, previousOffset)) {
             // we have to minus one from the offset so that the code below to find
             // the previous line can work correctly.
-            int left = (int) layout.getPrimaryHorizontal(previousOffset - 1);
-            int right = (int) layout.getLineRight(line);
+            int left = (int) index.getPrimaryHorizontal(previousOffset - 1);
+            int right = (int) index.getLineRight(line);
             int threshold = (right - left) / 2; // half the width of the last character
             if (x > right - threshold) {
                 previousOffset -= 1;
@@ -991,9 +1834,9 @@ public class SelectTextHelper {
         }
         ///////////////////////////////////////////////////////////////////////////////////
 
-        final int previousLine = layout.getLineForOffset(previousOffset);
-        final int previousLineTop = layout.getLineTop(previousLine);
-        final int previousLineBottom = layout.getLineBottom(previousLine);
+        final int previousLine = index.getLineForOffset(previousOffset);
+        final int previousLineTop = index.getLineTop(previousLine);
+        final int previousLineBottom = index.getLineBottom(previousLine);
         final int hysteresisThreshold = (previousLineBottom - previousLineTop) / 2;
 
         // If new line is just before or after previous line and y position is less than
@@ -1004,7 +1847,7 @@ public class SelectTextHelper {
             line = previousLine;
         }
 
-        int offset = layout.getOffsetForHorizontal(line, x);
+        int offset = index.getOffsetForHorizontal(line, x);
 
         // This allow the user to select the last character of a line without moving the
         // cursor to the next line. (As Layout.getOffsetForHorizontal does not return the
@@ -1014,9 +1857,9 @@ public class SelectTextHelper {
         // by 1 to compensate for the change made below. (see previous HACK BLOCK)
         /////////////////////HACK BLOCK///////////////////////////////////////////////////
         if (offset < textView.getText().length() - 1) {
-            if (isEndOfLineOffset(layout, offset + 1)) {
-                int left = (int) layout.getPrimaryHorizontal(offset);
-                int right = (int) layout.getLineRight(line);
+            if (isEndOfLineOffset(index, offset + 1)) {
+                int left = (int) index.getPrimaryHorizontal(offset);
+                int right = (int) index.getLineRight(line);
                 int threshold = (right - left) / 2; // half the width of the last character
                 if (x > right - threshold) {
                     offset += 1;
@@ -1028,20 +1871,47 @@ public class SelectTextHelper {
         return offset;
     }
 
-    private static boolean isEndOfLineOffset(Layout layout, int offset) {
-        return offset > 0 && layout.getLineForOffset(offset) == layout.getLineForOffset(offset - 1) + 1;
+    private static boolean isEndOfLineOffset(SelectTextLayoutIndex index, int offset) {
+        return offset > 0 && index.getLineForOffset(offset) == index.getLineForOffset(offset - 1) + 1;
+    }
+
+    /**
+     * 操作弹窗布局
+     */
+    private static int getOperateLayout(boolean lightweightMenu) {
+        return lightweightMenu ? R.layout.pop_operate_menu : R.layout.pop_operate;
     }
 
+    /**
+     * 物理屏幕的宽，窗口的宽请用 SelectTextMetrics.obtain(context)
+     */
     public static int getDisplayWidth() {
-        return Resources.getSystem().getDisplayMetrics().widthPixels;
+        return SelectTextMetrics.system().getWidthPixels();
     }
 
+    /**
+     * 物理屏幕的高，窗口的高请用 SelectTextMetrics.obtain(context)
+     */
     public static int getDisplayHeight() {
-        return Resources.getSystem().getDisplayMetrics().heightPixels;
+        return SelectTextMetrics.system().getHeightPixels();
     }
 
     public static int dp2px(float dpValue) {
-        return (int) (dpValue * Resources.getSystem().getDisplayMetrics().density + 0.5f);
+        return SelectTextMetrics.system().dp2px(dpValue);
+    }
+
+    /**
+     * 隐藏或显示已经弹出的窗口
+     * 隐藏时同时不接收触摸，停在原位置的窗口不会挡住下面的列表、输入框
+     */
+    static void setWindowHidden(PopupWindow window, View contentView, boolean hidden) {
+        contentView.setVisibility(hidden ? View.INVISIBLE : View.VISIBLE);
+        if (window.isTouchable() == hidden) {
+            window.setTouchable(!hidden);
+            if (window.isShowing()) {
+                window.update();
+            }
+        }
     }
 
     /**
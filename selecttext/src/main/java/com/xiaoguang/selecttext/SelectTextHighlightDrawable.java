@@ -0,0 +1,172 @@
+package com.xiaoguang.selecttext;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+import android.widget.TextView;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+/**
+ * 选中文本的高亮
+ * <p>
+ * 加到 TextView 的 ViewOverlay 上，用 Layout.getSelectionPath 直接画选区，
+ * 不修改文本的 span，不会触发 SpanWatcher 和重新布局。
+ * 选区变化时只刷新新旧 offset 之间的行。
+ * 高亮画在文字上面：不透明的颜色比文字亮时用 DARKEN 保留文字，否则降低透明度覆盖，深色背景上的浅色文字不会被盖住。
+ */
+class SelectTextHighlightDrawable extends Drawable {
+
+    private static final int FILL_ALPHA = 0x66;// 不能用 DARKEN 时覆盖的透明度
+
+    private final TextView mTextView;
+    private final Paint mPaint;
+    private final int mColor;
+    private final PorterDuffXfermode mDarken = new PorterDuffXfermode(PorterDuff.Mode.DARKEN);
+    private int mPaintTextColor;// 上次设置画笔时的文字颜色
+    private boolean mPaintValid;
+    private final Path mPath = new Path();
+    private Layout mPathLayout;// 生成 mPath 时的 Layout
+    private final Rect mDirty = new Rect();
+
+    private int mStart;
+    private int mEnd;
+
+    SelectTextHighlightDrawable(TextView textView, @ColorInt int color) {
+        mTextView = textView;
+        mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mPaint.setStyle(Paint.Style.FILL);
+        mColor = color;
+    }
+
+    /**
+     * 按文字颜色选择混合方式，文字颜色变化时重新设置
+     */
+    private void updatePaint() {
+        int textColor = mTextView.getCurrentTextColor();
+        if (mPaintValid && textColor == mPaintTextColor) {
+            return;
+        }
+        mPaintValid = true;
+        mPaintTextColor = textColor;
+        if (Color.alpha(mColor) != 0xFF) {
+            // 半透明的颜色直接覆盖
+            mPaint.setXfermode(null);
+            mPaint.setColor(mColor);
+        } else if (luminance(mColor) > luminance(textColor)) {
+            // 比文字亮，DARKEN 后文字颜色不变
+            mPaint.setXfermode(mDarken);
+            mPaint.setColor(mColor);
+        } else {
+            mPaint.setXfermode(null);
+            mPaint.setColor((mColor & 0x00FFFFFF) | (FILL_ALPHA << 24));
+        }
+    }
+
+    /**
+     * 相对亮度，Color.luminance 需要 Android 7.0
+     */
+    private static int luminance(@ColorInt int color) {
+        return Color.red(color) * 299 + Color.green(color) * 587 + Color.blue(color) * 114;
+    }
+
+    /**
+     * 更新选区 [start, end)
+     */
+    void setSelection(int start, int end) {
+        if (start == mStart && end == mEnd) {
+            return;
+        }
+        int oldStart = mStart;
+        int oldEnd = mEnd;
+        mStart = start;
+        mEnd = end;
+        mPathLayout = null;
+        setBounds(0, 0, mTextView.getWidth(), mTextView.getHeight());
+
+        if (oldStart == oldEnd) {
+            invalidateLines(start, end);
+        } else if (start == end) {
+            invalidateLines(oldStart, oldEnd);
+        } else {
+            if (oldStart != start) {
+                invalidateLines(Math.min(oldStart, start), Math.max(oldStart, start));
+            }
+            if (oldEnd != end) {
+                invalidateLines(Math.min(oldEnd, end), Math.max(oldEnd, end));
+            }
+        }
+    }
+
+    void clear() {
+        setSelection(0, 0);
+    }
+
+    /**
+     * 只刷新 offset 区间覆盖的行
+     * 行的位置是内容坐标，加上滚动后只取当前可见的部分；View.invalidate 会再减去滚动换算到 view 坐标
+     */
+    private void invalidateLines(int startOffset, int endOffset) {
+        SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(mTextView);
+        if (index == null) {
+            mTextView.invalidate();
+            return;
+        }
+        int scrollX = mTextView.getScrollX();
+        int scrollY = mTextView.getScrollY();
+        int paddingTop = mTextView.getTotalPaddingTop();
+        int top = paddingTop + index.getLineTop(index.getLineForOffset(startOffset));
+        int bottom = paddingTop + index.getLineBottom(index.getLineForOffset(endOffset));
+        // 横向滚动时整行都要包括可见的宽度，不是 [0, width)
+        mDirty.set(scrollX, top, scrollX + mTextView.getWidth(), bottom);
+        if (!mDirty.intersect(scrollX, scrollY, scrollX + mTextView.getWidth(), scrollY + mTextView.getHeight())) {
+            // 不在可见区域，滚动到时会重新绘制
+            return;
+        }
+        mTextView.invalidate(mDirty.left, mDirty.top, mDirty.right, mDirty.bottom);
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        if (mStart == mEnd) {
+            return;
+        }
+        Layout layout = mTextView.getLayout();
+        if (layout == null) {
+            return;
+        }
+        if (layout != mPathLayout) {
+            layout.getSelectionPath(mStart, mEnd, mPath);
+            mPathLayout = layout;
+        }
+        updatePaint();
+        int saveCount = canvas.save();
+        canvas.translate(mTextView.getTotalPaddingLeft(), mTextView.getTotalPaddingTop());
+        canvas.drawPath(mPath, mPaint);
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mPaint.setAlpha(alpha);
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
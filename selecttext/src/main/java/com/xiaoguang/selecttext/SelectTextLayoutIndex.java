@@ -0,0 +1,297 @@
+package com.xiaoguang.selecttext;
+
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.style.MetricAffectingSpan;
+import android.widget.TextView;
+
+/**
+ * 文本布局的命中测试索引
+ * <p>
+ * 每个 Layout 只构建一次：缓存每行的 top、bottom、起始 offset 和 lineRight，
+ * 每行字符的横坐标前缀数组在该行第一次被命中时构建：没有影响宽度的 span、没有 RTL 字符和制表符的行
+ * 用 TextPaint.getTextWidths 一次取得所有字符的宽度再累加，是 O(k)；
+ * 其余的行逐个调用 Layout.getPrimaryHorizontal，每次都从行首测量。
+ * (x, y) 求 offset、offset 求 x 都走二分查找，不再反复调用 Layout.getOffsetForHorizontal。
+ * TextView 的 Layout 或文本变化后，下一次 {@link #obtain(TextView)} 自动重建。
+ */
+public final class SelectTextLayoutIndex {
+
+    private final Layout mLayout;
+    private final CharSequence mText;
+    private final int mTextLength;
+    private final int mLineCount;
+
+    private final int[] mLineTops;// 长度 lineCount + 1，最后一个是布局高度
+    private final int[] mLineStarts;// 长度 lineCount + 1，最后一个是文本长度
+    private final float[] mLineRights;
+    private final float[][] mLineHorizontals;// 每行 offset 的横坐标，懒加载
+    private final boolean[] mLineFallback;// RTL 或横坐标不单调的行，直接走 Layout
+    private float[] mWidths;// getTextWidths 复用的数组
+
+    /**
+     * 获取 textView 当前 Layout 的索引
+     * Layout 未就绪时返回 null
+     */
+    public static SelectTextLayoutIndex obtain(TextView textView) {
+        Layout layout = textView.getLayout();
+        if (layout == null) {
+            return null;
+        }
+        Object tag = textView.getTag(R.id.select_text_layout_index);
+        if (tag instanceof SelectTextLayoutIndex && ((SelectTextLayoutIndex) tag).isValidFor(layout)) {
+            return (SelectTextLayoutIndex) tag;
+        }
+        SelectTextLayoutIndex index = new SelectTextLayoutIndex(layout);
+        textView.setTag(R.id.select_text_layout_index, index);
+        return index;
+    }
+
+    private SelectTextLayoutIndex(Layout layout) {
+        mLayout = layout;
+        mText = layout.getText();
+        mTextLength = mText.length();
+        mLineCount = layout.getLineCount();
+
+        mLineTops = new int[mLineCount + 1];
+        mLineStarts = new int[mLineCount + 1];
+        mLineRights = new float[mLineCount];
+        for (int i = 0; i < mLineCount; i++) {
+            mLineTops[i] = layout.getLineTop(i);
+            mLineStarts[i] = layout.getLineStart(i);
+            mLineRights[i] = layout.getLineRight(i);
+        }
+        mLineTops[mLineCount] = layout.getLineTop(mLineCount);
+        mLineStarts[mLineCount] = mTextLength;
+        mLineHorizontals = new float[mLineCount][];
+        mLineFallback = new boolean[mLineCount];
+    }
+
+    private boolean isValidFor(Layout layout) {
+        return mLayout == layout
+                && mText == layout.getText()
+                && mTextLength == mText.length()
+                && mLineCount == layout.getLineCount();
+    }
+
+    public Layout getLayout() {
+        return mLayout;
+    }
+
+    public int getLineCount() {
+        return mLineCount;
+    }
+
+    public int getLineTop(int line) {
+        return mLineTops[line];
+    }
+
+    public int getLineBottom(int line) {
+        return mLineTops[line + 1];
+    }
+
+    public int getLineStart(int line) {
+        return mLineStarts[line];
+    }
+
+    public float getLineRight(int line) {
+        return mLineRights[line];
+    }
+
+    /**
+     * 同 Layout.getLineForVertical
+     */
+    public int getLineForVertical(int vertical) {
+        int low = 0;
+        int high = mLineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mLineTops[mid] <= vertical) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.max(low, 0);
+    }
+
+    /**
+     * 同 Layout.getLineForOffset
+     */
+    public int getLineForOffset(int offset) {
+        int low = 0;
+        int high = mLineCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mLineStarts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.max(low, 0);
+    }
+
+    /**
+     * 同 Layout.getPrimaryHorizontal
+     */
+    public float getPrimaryHorizontal(int offset) {
+        int line = getLineForOffset(offset);
+        float[] horizontals = getLineHorizontals(line);
+        if (horizontals == null) {
+            return mLayout.getPrimaryHorizontal(offset);
+        }
+        int index = offset - mLineStarts[line];
+        if (index < 0 || index >= horizontals.length) {
+            return mLayout.getPrimaryHorizontal(offset);
+        }
+        return horizontals[index];
+    }
+
+    /**
+     * 同 Layout.getOffsetForHorizontal
+     * 取离 horizontal 最近的 offset，非最后一行不会返回行尾 offset
+     */
+    public int getOffsetForHorizontal(int line, float horizontal) {
+        float[] horizontals = getLineHorizontals(line);
+        if (horizontals == null) {
+            return mLayout.getOffsetForHorizontal(line, horizontal);
+        }
+        int max = horizontals.length - 1;
+        if (line != mLineCount - 1 && max > 0) {
+            max--;
+        }
+        // 第一个 >= horizontal 的位置
+        int low = 0;
+        int high = max;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (horizontals[mid] < horizontal) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int index = low;
+        if (index > 0 && horizontal - horizontals[index - 1] <= horizontals[index] - horizontal) {
+            index--;
+            // 同一横坐标取最小的 offset，避免落在代理对中间
+            while (index > 0 && horizontals[index - 1] == horizontals[index]) {
+                index--;
+            }
+        }
+        return mLineStarts[line] + index;
+    }
+
+    private float[] getLineHorizontals(int line) {
+        if (mLineFallback[line]) {
+            return null;
+        }
+        float[] horizontals = mLineHorizontals[line];
+        if (horizontals != null) {
+            return horizontals;
+        }
+        if (mLayout.getParagraphDirection(line) != Layout.DIR_LEFT_TO_RIGHT) {
+            mLineFallback[line] = true;
+            return null;
+        }
+        int start = mLineStarts[line];
+        int end = mLineStarts[line + 1];
+        horizontals = new float[end - start + 1];
+        if (!measureLine(start, end, horizontals)) {
+            if (!queryLine(start, end, horizontals)) {
+                mLineFallback[line] = true;
+                return null;
+            }
+        }
+        int last = end - start;
+        if (line == mLineCount - 1) {
+            horizontals[last] = mLayout.getPrimaryHorizontal(end);
+        } else {
+            horizontals[last] = last > 0 ? Math.max(horizontals[last - 1], mLineRights[line]) : mLineRights[line];
+        }
+        mLineHorizontals[line] = horizontals;
+        return horizontals;
+    }
+
+    /**
+     * 一次取得整行字符的宽度，累加出每个 offset 的横坐标
+     * 行首位置（对齐、缩进）取自 Layout；最后和 Layout 核对一个字符，两端对齐等不一致时返回 false
+     */
+    private boolean measureLine(int start, int end, float[] horizontals) {
+        int count = end - start;
+        if (count == 0 || !isPlainLtr(start, end)) {
+            return false;
+        }
+        if (null == mWidths || mWidths.length < count) {
+            mWidths = new float[count];
+        }
+        float[] widths = mWidths;
+        mLayout.getPaint().getTextWidths(mText, start, end, widths);
+        float x = mLayout.getPrimaryHorizontal(start);
+        int check = 0;// 用来核对的最后一个不是代理对后半的字符
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && isTrailingSurrogate(start + i)) {
+                horizontals[i] = horizontals[i - 1];
+            } else {
+                horizontals[i] = x;
+                check = i;
+            }
+            x += widths[i];
+        }
+        return Math.abs(horizontals[check] - mLayout.getPrimaryHorizontal(start + check)) < 1f;
+    }
+
+    /**
+     * 没有影响字符宽度的 span、RTL 字符、双向控制字符和制表符
+     */
+    private boolean isPlainLtr(int start, int end) {
+        if (mText instanceof Spanned
+                && ((Spanned) mText).getSpans(start, end, MetricAffectingSpan.class).length > 0) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = mText.charAt(i);
+            if (c < 0x0590) {
+                if (c == '\t') {
+                    return false;
+                }
+                continue;
+            }
+            if ((c >= 0x202A && c <= 0x202E) || (c >= 0x2066 && c <= 0x2069)) {
+                return false;
+            }
+            byte direction = Character.getDirectionality(c);
+            if (direction == Character.DIRECTIONALITY_RIGHT_TO_LEFT
+                    || direction == Character.DIRECTIONALITY_RIGHT_TO_LEFT_ARABIC) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isTrailingSurrogate(int offset) {
+        return offset > 0 && Character.isLowSurrogate(mText.charAt(offset))
+                && Character.isHighSurrogate(mText.charAt(offset - 1));
+    }
+
+    /**
+     * 逐个 offset 问 Layout，带 span 或 RTL 的行
+     * 横坐标不单调时返回 false
+     */
+    private boolean queryLine(int start, int end, float[] horizontals) {
+        for (int i = 0; i < end - start; i++) {
+            int offset = start + i;
+            if (i > 0 && isTrailingSurrogate(offset)) {
+                horizontals[i] = horizontals[i - 1];
+            } else {
+                horizontals[i] = mLayout.getPrimaryHorizontal(offset);
+            }
+            if (i > 0 && horizontals[i] < horizontals[i - 1]) {
+                // 行内有 RTL 文本，二分不成立
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,233 @@
+package com.xiaoguang.selecttext;
+
+import android.text.Spannable;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.style.URLSpan;
+import android.text.util.Linkify;
+import android.util.LruCache;
+import android.widget.TextView;
+
+/**
+ * 后台识别文本里的链接
+ * <p>
+ * 在后台线程用 Linkify 识别网址、邮箱、电话，结果按文本内容的 hash 和长度缓存，不保存整个文本；
+ * hash 可以被构造出相同的值，命中时逐个比较链接所在位置的文字，不一致按没有缓存处理。
+ * 回到主线程后一次性加上 URLSpan，点击时走 OnSelectListener.onClickUrl。
+ * 缓存命中时在注册 textView 时同步加上，第一次绘制前就有链接。
+ * textView 复用或换了文本时，之前的识别任务作废，可以用 {@link #cancel(TextView)} 主动取消。
+ */
+public final class SelectTextLinkify {
+
+    private static final int MAX_CACHE_SIZE = 64 * 1024;// 缓存的识别结果最多占用的字节数，估算
+
+    private static final LruCache<Long, Links> sCache = new LruCache<Long, Links>(MAX_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(Long key, Links links) {
+            return links.sizeOf();
+        }
+    };
+
+    private SelectTextLinkify() {
+    }
+
+    interface OnLinksAppliedListener {
+        void onLinksApplied(TextView textView);
+    }
+
+    /**
+     * 识别结果，按开始位置排列
+     */
+    private static final class Links {
+        final int linkMask;
+        final int[] starts;
+        final int[] ends;
+        final String[] urls;
+        final String[] sources;// 链接所在位置的文字
+
+        Links(int linkMask, int[] starts, int[] ends, String[] urls, String[] sources) {
+            this.linkMask = linkMask;
+            this.starts = starts;
+            this.ends = ends;
+            this.urls = urls;
+            this.sources = sources;
+        }
+
+        /**
+         * text 在每个链接位置的文字都和识别时一样
+         * 不一样说明是另一条 hash 相同的文本，不能把它的链接加上来
+         */
+        boolean matches(CharSequence text) {
+            int length = text.length();
+            for (int i = 0; i < sources.length; i++) {
+                if (ends[i] > length) {
+                    return false;
+                }
+                String source = sources[i];
+                for (int j = 0, start = starts[i]; j < source.length(); j++) {
+                    if (text.charAt(start + j) != source.charAt(j)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 大约占用的字节数，没有链接的结果也按对象头计算
+         */
+        int sizeOf() {
+            int size = 40 + starts.length * 8;
+            for (int i = 0; i < urls.length; i++) {
+                size += 80 + (urls[i].length() + sources[i].length()) * 2;
+            }
+            return size;
+        }
+    }
+
+    private static final class Task implements Runnable {
+        final TextView textView;
+        final CharSequence text;
+        final String snapshot;// 后台线程识别用的拷贝
+        final long key;
+        final int linkMask;
+        final OnLinksAppliedListener listener;
+        volatile boolean cancelled;
+
+        Task(TextView textView, CharSequence text, String snapshot, long key, int linkMask,
+             OnLinksAppliedListener listener) {
+            this.textView = textView;
+            this.text = text;
+            this.snapshot = snapshot;
+            this.key = key;
+            this.linkMask = linkMask;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            final Links links = detect(snapshot, linkMask);
+            sCache.put(key, links);
+            SelectTextBackground.post(() -> {
+                if (cancelled || textView.getTag(R.id.select_text_link_task) != this) {
+                    return;
+                }
+                textView.setTag(R.id.select_text_link_task, null);
+                // 识别期间文本已经变了
+                if (!TextUtils.equals(text, textView.getText())) {
+                    return;
+                }
+                apply(textView, links, listener);
+            });
+        }
+    }
+
+    /**
+     * 识别并加上链接
+     * 主线程调用
+     *
+     * @param linkMask Linkify.WEB_URLS、Linkify.EMAIL_ADDRESSES、Linkify.PHONE_NUMBERS 的组合
+     */
+    static void linkify(TextView textView, int linkMask, OnLinksAppliedListener listener) {
+        cancel(textView);
+        CharSequence text = textView.getText();
+        if (0 == linkMask || TextUtils.isEmpty(text)) {
+            return;
+        }
+        long key = keyOf(text);
+        Links links = sCache.get(key);
+        if (null != links && links.linkMask == linkMask && links.matches(text)) {
+            apply(textView, links, listener);
+            return;
+        }
+        // 没有缓存时才拷贝文本
+        Task task = new Task(textView, text, text.toString(), key, linkMask, listener);
+        textView.setTag(R.id.select_text_link_task, task);
+        SelectTextBackground.executor().execute(task);
+    }
+
+    /**
+     * 取消 textView 还没完成的识别，例如 ViewHolder 被回收时
+     */
+    public static void cancel(TextView textView) {
+        Object tag = textView.getTag(R.id.select_text_link_task);
+        if (tag instanceof Task) {
+            ((Task) tag).cancelled = true;
+            textView.setTag(R.id.select_text_link_task, null);
+        }
+    }
+
+    /**
+     * 缓存的 key：高 32 位是内容的 hash（和 String.hashCode 相同的算法），低 32 位是长度
+     * String 的 hashCode 有缓存，同一条消息再次 bind 时不需要遍历
+     */
+    private static long keyOf(CharSequence text) {
+        int hash;
+        if (text instanceof String) {
+            hash = text.hashCode();
+        } else {
+            hash = 0;
+            for (int i = 0, length = text.length(); i < length; i++) {
+                hash = 31 * hash + text.charAt(i);
+            }
+        }
+        return ((long) hash << 32) | (text.length() & 0xFFFFFFFFL);
+    }
+
+    private static Links detect(String text, int linkMask) {
+        SpannableString spannable = new SpannableString(text);
+        if (!Linkify.addLinks(spannable, linkMask)) {
+            return new Links(linkMask, new int[0], new int[0], new String[0], new String[0]);
+        }
+        URLSpan[] spans = spannable.getSpans(0, spannable.length(), URLSpan.class);
+        int[] starts = new int[spans.length];
+        int[] ends = new int[spans.length];
+        String[] urls = new String[spans.length];
+        String[] sources = new String[spans.length];
+        for (int i = 0; i < spans.length; i++) {
+            starts[i] = spannable.getSpanStart(spans[i]);
+            ends[i] = spannable.getSpanEnd(spans[i]);
+            urls[i] = spans[i].getURL();
+            sources[i] = text.substring(starts[i], ends[i]);
+        }
+        return new Links(linkMask, starts, ends, urls, sources);
+    }
+
+    /**
+     * 一次性加上所有链接
+     * 已经是 Spannable 的文本直接加 span，只会重绘不会重新布局；否则只 setText 一次
+     */
+    private static void apply(TextView textView, Links links, OnLinksAppliedListener listener) {
+        if (links.urls.length == 0) {
+            return;
+        }
+        CharSequence text = textView.getText();
+        Spannable spannable = text instanceof Spannable ? (Spannable) text : new SpannableString(text);
+        boolean added = false;
+        for (int i = 0; i < links.urls.length; i++) {
+            if (links.ends[i] > spannable.length()) {
+                continue;
+            }
+            // 已经有链接的不重复加
+            if (spannable.getSpans(links.starts[i], links.ends[i], URLSpan.class).length > 0) {
+                continue;
+            }
+            spannable.setSpan(new URLSpan(links.urls[i]), links.starts[i], links.ends[i],
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+            added = true;
+        }
+        if (!added) {
+            return;
+        }
+        if (spannable != text) {
+            textView.setText(spannable, TextView.BufferType.SPANNABLE);
+        }
+        if (null != listener) {
+            listener.onLinksApplied(textView);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.xiaoguang.selecttext;
+
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 列表选择文本
+ * <p>
+ * 整个 RecyclerView 共用一个 SelectTextHelper：一套游标、一个操作弹窗、一个放大镜。
+ * onBindViewHolder 里只调用 {@link #register(TextView)} 给 textView 设置共用的监听，
+ * 第一次长按某个 textView 时才把选择文本绑定到它上面。
+ */
+public class SelectTextListCoordinator {
+
+    private final RecyclerView mRecyclerView;
+    private final SelectTextHelper mHelper;
+
+    private final RecyclerView.OnChildAttachStateChangeListener mChildAttachListener =
+            new RecyclerView.OnChildAttachStateChangeListener() {
+                @Override
+                public void onChildViewAttachedToWindow(@NonNull View view) {
+                }
+
+                @Override
+                public void onChildViewDetachedFromWindow(@NonNull View view) {
+                    // 选中的条目被移出列表
+                    if (isSelectedIn(view)) {
+                        mHelper.reset();
+                    }
+                }
+            };
+
+    /**
+     * @param builder 使用 {@link SelectTextHelper.Builder#Builder(android.content.Context)} 创建
+     */
+    public SelectTextListCoordinator(RecyclerView recyclerView, SelectTextHelper.Builder builder) {
+        mRecyclerView = recyclerView;
+        mHelper = builder.build();
+        mHelper.setListScoped(true);
+        mHelper.prewarm();
+        mRecyclerView.addOnChildAttachStateChangeListener(mChildAttachListener);
+    }
+
+    /**
+     * 在 onBindViewHolder 里调用
+     * textView 复用后绑定了新的内容，原来的选区作废
+     */
+    public void register(TextView textView) {
+        if (textView == mHelper.getTextView()) {
+            mHelper.reset();
+        }
+        mHelper.registerTextView(textView);
+    }
+
+    /**
+     * 选择文本监听
+     * 回调里的 View 是当前长按或点击的 textView
+     */
+    public void setSelectListener(SelectTextHelper.OnSelectListener selectListener) {
+        mHelper.setSelectListener(selectListener);
+    }
+
+    /**
+     * 当前选择文本的 textView
+     * 还没有长按过时返回 null
+     */
+    public TextView getTextView() {
+        return mHelper.getTextView();
+    }
+
+    public SelectTextHelper getHelper() {
+        return mHelper;
+    }
+
+    /**
+     * 重置弹窗
+     */
+    public void reset() {
+        mHelper.reset();
+    }
+
+    /**
+     * 销毁
+     */
+    public void destroy() {
+        mRecyclerView.removeOnChildAttachStateChangeListener(mChildAttachListener);
+        mHelper.destroy();
+    }
+
+    private boolean isSelectedIn(View itemView) {
+        View view = mHelper.getTextView();
+        while (view != null) {
+            if (view == itemView) {
+                return true;
+            }
+            if (!(view.getParent() instanceof View)) {
+                return false;
+            }
+            view = (View) view.getParent();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,218 @@
+package com.xiaoguang.selecttext;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.Magnifier;
+import android.widget.PopupWindow;
+import android.widget.TextView;
+
+/**
+ * 放大镜
+ * <p>
+ * Android 9 及以上使用系统 Magnifier，以下用 textView 的截图放大显示在 PopupWindow 里。
+ * textView 在屏幕上的位置只在滚动或布局变化后重新获取，拖动时不分配内存；
+ * 截图只截放大的区域，手指移动、文本或选区变化后重新绘制到同一个小位图。
+ */
+final class SelectTextMagnifier {
+
+    private static final float ZOOM = 1.25f;// 和系统 Magnifier 默认一致
+    private static final int WIDTH_DP = 100;
+    private static final int HEIGHT_DP = 48;
+    private static final int OFFSET_DP = 32;// 放大镜在手指上方的距离
+
+    private final TextView mTextView;
+    private final int mOffset;
+
+    private final int[] mLocation = new int[2];// 屏幕坐标
+    private final int[] mWindowLocation = new int[2];// 窗口坐标，截图弹窗使用
+    private boolean mLocationValid;
+
+    private Magnifier mMagnifier;// Android 9 及以上
+    private SnapshotView mSnapshotView;// Android 9 以下
+    private PopupWindow mSnapshotWindow;
+
+    private final View.OnLayoutChangeListener mLayoutChangeListener =
+            (v, left, top, right, bottom, oldLeft, oldTop, oldRight, oldBottom) -> {
+                mLocationValid = false;
+                invalidateSnapshot();
+            };
+
+    SelectTextMagnifier(TextView textView) {
+        mTextView = textView;
+        mOffset = SelectTextMetrics.obtain(textView.getContext()).dp2px(OFFSET_DP);
+        mTextView.addOnLayoutChangeListener(mLayoutChangeListener);
+    }
+
+    /**
+     * 滚动后 textView 的位置变了
+     */
+    void invalidatePosition() {
+        mLocationValid = false;
+    }
+
+    /**
+     * 文本或选区变了，下次显示时重新截图
+     */
+    void invalidateSnapshot() {
+        if (null != mSnapshotView) {
+            mSnapshotView.mSnapshotValid = false;
+        }
+    }
+
+    /**
+     * 在手指位置上方显示
+     *
+     * @param rawX 手指在屏幕上的x
+     * @param rawY 手指在屏幕上的y
+     */
+    @SuppressLint("NewApi")
+    void show(int rawX, int rawY) {
+        if (!mLocationValid) {
+            mTextView.getLocationOnScreen(mLocation);
+            mTextView.getLocationInWindow(mWindowLocation);
+            mLocationValid = true;
+        }
+        int x = rawX - mLocation[0];
+        int y = Math.max(rawY - mLocation[1] - mOffset, 0);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            if (null == mMagnifier) {
+                mMagnifier = new Magnifier(mTextView);
+            }
+            mMagnifier.show(x, y);
+        } else {
+            showSnapshot(x, y);
+        }
+    }
+
+    @SuppressLint("NewApi")
+    void dismiss() {
+        if (null != mMagnifier) {
+            mMagnifier.dismiss();
+        }
+        if (null != mSnapshotWindow) {
+            mSnapshotWindow.dismiss();
+        }
+    }
+
+    /**
+     * 不再使用，移除监听并释放截图
+     */
+    void release() {
+        dismiss();
+        mTextView.removeOnLayoutChangeListener(mLayoutChangeListener);
+        if (null != mSnapshotView) {
+            mSnapshotView.recycle();
+        }
+    }
+
+    private void showSnapshot(int x, int y) {
+        if (mTextView.getWidth() <= 0 || mTextView.getHeight() <= 0) {
+            return;
+        }
+        if (null == mSnapshotView) {
+            SelectTextMetrics metrics = SelectTextMetrics.obtain(mTextView.getContext());
+            mSnapshotView = new SnapshotView(mTextView.getContext());
+            mSnapshotWindow = new PopupWindow(mSnapshotView,
+                    metrics.dp2px(WIDTH_DP), metrics.dp2px(HEIGHT_DP), false);
+            mSnapshotWindow.setClippingEnabled(false);
+            mSnapshotWindow.setTouchable(false);
+        }
+        mSnapshotView.setCenter(mTextView, x, y);
+        int width = mSnapshotWindow.getWidth();
+        int height = mSnapshotWindow.getHeight();
+        int posX = mWindowLocation[0] + x - width / 2;
+        int posY = mWindowLocation[1] + y - height;
+        if (mSnapshotWindow.isShowing()) {
+            mSnapshotWindow.update(posX, posY, -1, -1);
+        } else {
+            mSnapshotWindow.showAtLocation(mTextView, Gravity.NO_GRAVITY, posX, posY);
+        }
+    }
+
+    /**
+     * 放大显示 textView 截图的一部分
+     * 只截手指附近放大的区域（放大镜大小 / ZOOM），位图大小固定、一直复用，和 textView 多高无关
+     */
+    private static final class SnapshotView extends View {
+
+        private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        private final Rect mSrc = new Rect();// 截图区域，textView 可见区域的坐标
+        private final Rect mDst = new Rect();
+        private Bitmap mSnapshot;
+        private Canvas mSnapshotCanvas;
+        private CharSequence mSnapshotText;// 截图时的文本
+        private int mSnapshotLeft;// 截图时的区域
+        private int mSnapshotTop;
+        boolean mSnapshotValid;
+
+        SnapshotView(Context context) {
+            super(context);
+        }
+
+        void setCenter(TextView textView, int x, int y) {
+            SelectTextMetrics metrics = SelectTextMetrics.obtain(getContext());
+            int width = getWidth() > 0 ? getWidth() : metrics.dp2px(WIDTH_DP);
+            int height = getHeight() > 0 ? getHeight() : metrics.dp2px(HEIGHT_DP);
+            int srcWidth = Math.max(1, (int) (width / ZOOM));
+            int srcHeight = Math.max(1, (int) (height / ZOOM));
+            int left = x - srcWidth / 2;
+            int top = y - srcHeight / 2;
+            mSrc.set(left, top, left + srcWidth, top + srcHeight);
+            mDst.set(0, 0, width, height);
+            if (!mSnapshotValid || mSnapshotText != textView.getText()
+                    || mSnapshotLeft != left || mSnapshotTop != top
+                    || null == mSnapshot || mSnapshot.getWidth() != srcWidth || mSnapshot.getHeight() != srcHeight) {
+                takeSnapshot(textView);
+            }
+            invalidate();
+        }
+
+        /**
+         * 只绘制 mSrc 区域，textView 绘制时按裁剪区域只画相交的行
+         */
+        private void takeSnapshot(TextView textView) {
+            int width = mSrc.width();
+            int height = mSrc.height();
+            if (null == mSnapshot || mSnapshot.getWidth() != width || mSnapshot.getHeight() != height) {
+                recycle();
+                mSnapshot = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                mSnapshotCanvas = new Canvas(mSnapshot);
+            }
+            // textView一般没有背景，截图底色用白色
+            mSnapshot.eraseColor(Color.WHITE);
+            int saveCount = mSnapshotCanvas.save();
+            mSnapshotCanvas.translate(-textView.getScrollX() - mSrc.left, -textView.getScrollY() - mSrc.top);
+            textView.draw(mSnapshotCanvas);
+            mSnapshotCanvas.restoreToCount(saveCount);
+            mSnapshotText = textView.getText();
+            mSnapshotLeft = mSrc.left;
+            mSnapshotTop = mSrc.top;
+            mSnapshotValid = true;
+        }
+
+        void recycle() {
+            if (null != mSnapshot) {
+                mSnapshot.recycle();
+                mSnapshot = null;
+                mSnapshotCanvas = null;
+            }
+            mSnapshotText = null;
+            mSnapshotValid = false;
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            if (null != mSnapshot) {
+                canvas.drawBitmap(mSnapshot, null, mDst, mPaint);
+            }
+        }
+    }
+}
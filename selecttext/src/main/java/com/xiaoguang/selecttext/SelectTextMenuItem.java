@@ -0,0 +1,81 @@
+package com.xiaoguang.selecttext;
+
+import androidx.annotation.DrawableRes;
+
+/**
+ * 操作弹窗的 item
+ * <p>
+ * 创建后不可修改，id 稳定：SelectTextHelper.Builder.addItem 传入文字资源 id 时使用该资源 id，
+ * 传入文字时使用添加的顺序。
+ * id 可能重复（同一个文字资源添加两次），点击时按 index 找到对应的 listener，列表的 stable id 也用 index。
+ */
+public final class SelectTextMenuItem {
+
+    public static final int NO_INDEX = -1;
+
+    private final long mId;
+    private final int mIndex;// 添加的顺序，也是 listener 的下标，唯一
+    private final int mDrawableId;
+    private final String mText;
+
+    public SelectTextMenuItem(long id, @DrawableRes int drawableId, String text) {
+        this(id, NO_INDEX, drawableId, text);
+    }
+
+    public SelectTextMenuItem(long id, int index, @DrawableRes int drawableId, String text) {
+        mId = id;
+        mIndex = index;
+        mDrawableId = drawableId;
+        mText = text;
+    }
+
+    public long getId() {
+        return mId;
+    }
+
+    /**
+     * 添加的顺序，没有时返回 {@link #NO_INDEX}
+     */
+    public int getIndex() {
+        return mIndex;
+    }
+
+    /**
+     * 列表里的 stable id，有 index 时用 index，不会因为 id 重复而混淆
+     */
+    long getStableId() {
+        return mIndex == NO_INDEX ? mId : mIndex;
+    }
+
+    public int getDrawableId() {
+        return mDrawableId;
+    }
+
+    public String getText() {
+        return mText;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SelectTextMenuItem)) {
+            return false;
+        }
+        SelectTextMenuItem item = (SelectTextMenuItem) o;
+        return mId == item.mId
+                && mIndex == item.mIndex
+                && mDrawableId == item.mDrawableId
+                && (null == mText ? null == item.mText : mText.equals(item.mText));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (mId ^ (mId >>> 32));
+        result = 31 * result + mIndex;
+        result = 31 * result + mDrawableId;
+        result = 31 * result + (null == mText ? 0 : mText.hashCode());
+        return result;
+    }
+}
@@ -0,0 +1,356 @@
+package com.xiaoguang.selecttext;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.Button;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 轻量的操作弹窗菜单
+ * <p>
+ * 一个 View 自己排列和绘制所有 item（图标 + 文字），按 spanCount 换行，自己处理点击。
+ * 样式和 item_select_text_pop 一致，用来替代只有几个按钮时的 RecyclerView + GridLayoutManager。
+ * 文字在 {@link #setItems(List)} 时断行，绘制时不再测量。
+ * 每个 item 是一个虚拟的无障碍节点，TalkBack 可以逐个读出和点击；按下时画一层半透明背景。
+ */
+public class SelectTextMenuView extends View {
+
+    private static final int MAX_LINES = 2;
+    private static final int PRESSED_COLOR = 0x33FFFFFF;// 按下时的背景
+
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+    private final Paint mPressedPaint = new Paint();
+    private final AccessibilityHelper mAccessibilityHelper;
+
+    // 尺寸和 item_select_text_pop 一致
+    private final int mCellWidth;
+    private final int mCellMarginTop;
+    private final int mIconMarginTop;
+    private final int mLabelMarginTop;
+    private final int mLabelMarginBottom;
+    private final int mLabelPadding;
+
+    private List<SelectTextMenuItem> mItems = Collections.emptyList();
+    private final List<Cell> mCells = new ArrayList<>();
+    private int mSpanCount = 5;
+    private int mLineHeight;
+    private int mPressedIndex = -1;
+
+    private SelectTextPopAdapter.onClickItemListener mListener;
+
+    private static class Cell {
+        SelectTextMenuItem item;
+        Drawable icon;
+        String[] lines = new String[MAX_LINES];
+        int lineCount;
+        int left;
+        int top;
+        int height;
+    }
+
+    public SelectTextMenuView(Context context) {
+        this(context, null);
+    }
+
+    public SelectTextMenuView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        SelectTextMetrics metrics = SelectTextMetrics.obtain(context);
+        mCellWidth = metrics.dp2px(52);
+        mCellMarginTop = metrics.dp2px(12);
+        mIconMarginTop = metrics.dp2px(4);
+        mLabelMarginTop = metrics.dp2px(4);
+        mLabelMarginBottom = metrics.dp2px(6);
+        mLabelPadding = metrics.dp2px(2);
+        mTextPaint.setColor(Color.WHITE);
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+        mTextPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 14,
+                context.getResources().getDisplayMetrics()));
+        mTextPaint.getFontMetricsInt(mFontMetrics);
+        mLineHeight = mFontMetrics.descent - mFontMetrics.ascent;
+        mPressedPaint.setColor(PRESSED_COLOR);
+        mAccessibilityHelper = new AccessibilityHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+    }
+
+    public void setOnclickItemListener(SelectTextPopAdapter.onClickItemListener l) {
+        mListener = l;
+    }
+
+    /**
+     * 每行个数
+     */
+    public void setSpanCount(int spanCount) {
+        spanCount = Math.max(1, spanCount);
+        if (mSpanCount != spanCount) {
+            mSpanCount = spanCount;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    /**
+     * 当前显示的 item
+     */
+    public List<SelectTextMenuItem> getItems() {
+        return mItems;
+    }
+
+    /**
+     * 更新显示的 item
+     * 和当前内容相同时不做任何事
+     */
+    public void setItems(List<SelectTextMenuItem> items) {
+        List<SelectTextMenuItem> newItems = null == items
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(items));
+        if (mItems.equals(newItems)) {
+            return;
+        }
+        mItems = newItems;
+        mCells.clear();
+        int labelWidth = mCellWidth - mLabelPadding * 2;
+        for (SelectTextMenuItem item : newItems) {
+            Cell cell = new Cell();
+            cell.item = item;
+            if (0 != item.getDrawableId()) {
+                cell.icon = ContextCompat.getDrawable(getContext(), item.getDrawableId());
+            }
+            breakText(cell, null == item.getText() ? "" : item.getText(), labelWidth);
+            mCells.add(cell);
+        }
+        mPressedIndex = -1;
+        requestLayout();
+        invalidate();
+        mAccessibilityHelper.invalidateRoot();
+    }
+
+    /**
+     * 最多两行，第二行放不下时省略
+     */
+    private void breakText(Cell cell, String text, int width) {
+        cell.lineCount = 0;
+        int start = 0;
+        int length = text.length();
+        while (start < length && cell.lineCount < MAX_LINES) {
+            if (cell.lineCount == MAX_LINES - 1) {
+                cell.lines[cell.lineCount++] = TextUtils.ellipsize(text.substring(start), mTextPaint,
+                        width, TextUtils.TruncateAt.END).toString();
+                break;
+            }
+            int count = mTextPaint.breakText(text, start, length, true, width, null);
+            if (count <= 0) {
+                count = 1;
+            }
+            cell.lines[cell.lineCount++] = text.substring(start, start + count);
+            start += count;
+        }
+    }
+
+    private int getColumnCount() {
+        return Math.max(1, Math.min(mCells.size(), mSpanCount));
+    }
+
+    private int getCellHeight(Cell cell) {
+        int iconHeight = null == cell.icon ? 0 : Math.max(0, cell.icon.getIntrinsicHeight());
+        return mCellMarginTop + mIconMarginTop + iconHeight
+                + mLabelMarginTop + mLineHeight * Math.max(1, cell.lineCount) + mLabelMarginBottom;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int columns = getColumnCount();
+        int height = getPaddingTop();
+        // 每行的高度取最高的item
+        for (int rowStart = 0; rowStart < mCells.size(); rowStart += columns) {
+            int rowHeight = 0;
+            int rowEnd = Math.min(rowStart + columns, mCells.size());
+            for (int i = rowStart; i < rowEnd; i++) {
+                rowHeight = Math.max(rowHeight, getCellHeight(mCells.get(i)));
+            }
+            for (int i = rowStart; i < rowEnd; i++) {
+                Cell cell = mCells.get(i);
+                cell.left = getPaddingLeft() + (i - rowStart) * mCellWidth;
+                cell.top = height;
+                cell.height = rowHeight;
+            }
+            height += rowHeight;
+        }
+        height += getPaddingBottom();
+        int width = getPaddingLeft() + (mCells.isEmpty() ? 0 : columns * mCellWidth) + getPaddingRight();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int halfCell = mCellWidth / 2;
+        for (int i = 0, size = mCells.size(); i < size; i++) {
+            Cell cell = mCells.get(i);
+            if (i == mPressedIndex) {
+                canvas.drawRect(cell.left, cell.top, cell.left + mCellWidth, cell.top + cell.height, mPressedPaint);
+            }
+            int y = cell.top + mCellMarginTop + mIconMarginTop;
+            if (null != cell.icon) {
+                int iconWidth = Math.max(0, cell.icon.getIntrinsicWidth());
+                int iconHeight = Math.max(0, cell.icon.getIntrinsicHeight());
+                int iconLeft = cell.left + (mCellWidth - iconWidth) / 2;
+                cell.icon.setBounds(iconLeft, y, iconLeft + iconWidth, y + iconHeight);
+                cell.icon.draw(canvas);
+                y += iconHeight;
+            }
+            y += mLabelMarginTop - mFontMetrics.ascent;
+            for (int line = 0; line < cell.lineCount; line++) {
+                canvas.drawText(cell.lines[line], cell.left + halfCell, y, mTextPaint);
+                y += mLineHeight;
+            }
+        }
+    }
+
+    private int findCell(float x, float y) {
+        for (int i = 0, size = mCells.size(); i < size; i++) {
+            Cell cell = mCells.get(i);
+            // 上边距也算点击区域，和 item_select_text_pop 的 marginTop 不同，方便点击
+            if (x >= cell.left && x < cell.left + mCellWidth
+                    && y >= cell.top && y < cell.top + cell.height) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void setPressedIndex(int index) {
+        if (mPressedIndex != index) {
+            mPressedIndex = index;
+            invalidate();
+        }
+    }
+
+    /**
+     * 点击第 index 个 item，触摸和无障碍服务共用
+     */
+    private void clickItem(int index) {
+        if (index < 0 || index >= mCells.size()) {
+            return;
+        }
+        mAccessibilityHelper.sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        if (null != mListener) {
+            mListener.onClick(mCells.get(index).item);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setPressedIndex(findCell(event.getX(), event.getY()));
+                return mPressedIndex >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (mPressedIndex >= 0 && findCell(event.getX(), event.getY()) != mPressedIndex) {
+                    setPressedIndex(-1);
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                int index = mPressedIndex;
+                setPressedIndex(-1);
+                if (index >= 0 && findCell(event.getX(), event.getY()) == index) {
+                    performClick();
+                    clickItem(index);
+                }
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                setPressedIndex(-1);
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return mAccessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return mAccessibilityHelper.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, @Nullable Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        mAccessibilityHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    /**
+     * 每个 item 一个虚拟节点，虚拟 id 就是 item 的下标
+     */
+    private class AccessibilityHelper extends ExploreByTouchHelper {
+
+        AccessibilityHelper(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int index = findCell(x, y);
+            return index >= 0 ? index : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int i = 0, size = mCells.size(); i < size; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, @NonNull AccessibilityNodeInfoCompat node) {
+            if (virtualViewId < 0 || virtualViewId >= mCells.size()) {
+                // 节点已经不存在，仍然要给出 bounds
+                node.setContentDescription("");
+                node.setBoundsInParent(new Rect());
+                return;
+            }
+            Cell cell = mCells.get(virtualViewId);
+            String text = cell.item.getText();
+            node.setContentDescription(null == text ? "" : text);
+            node.setClassName(Button.class.getName());
+            node.setClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            node.setBoundsInParent(new Rect(cell.left, cell.top, cell.left + mCellWidth, cell.top + cell.height));
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments) {
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK
+                    && virtualViewId >= 0 && virtualViewId < mCells.size()) {
+                clickItem(virtualViewId);
+                return true;
+            }
+            return false;
+        }
+    }
+}
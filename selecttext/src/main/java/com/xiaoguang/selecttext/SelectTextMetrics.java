@@ -0,0 +1,104 @@
+package com.xiaoguang.selecttext;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.DisplayMetrics;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 屏幕尺寸快照
+ * <p>
+ * 按 Context 的 Resources（即所在窗口）缓存宽高和密度，分屏、折叠屏时是窗口的尺寸而不是物理屏幕。
+ * 常用的 dp 值创建时就换算好。配置变化（屏幕宽高、方向、密度、字体缩放）后下一次 obtain 重新生成。
+ */
+public final class SelectTextMetrics {
+
+    private static final int DP_CACHE_SIZE = 65;// 预先换算 0 ~ 64dp
+
+    private static final Map<Resources, SelectTextMetrics> sCache = new WeakHashMap<>();
+
+    private final float mDensity;
+    private final int mWidthPixels;
+    private final int mHeightPixels;
+    private final int[] mDpCache = new int[DP_CACHE_SIZE];
+
+    // 生成快照时的配置
+    private final int mScreenWidthDp;
+    private final int mScreenHeightDp;
+    private final int mOrientation;
+    private final int mDensityDpi;
+    private final float mFontScale;
+
+    /**
+     * context 所在窗口的尺寸
+     */
+    public static SelectTextMetrics obtain(Context context) {
+        return obtain(context.getResources());
+    }
+
+    /**
+     * 物理屏幕的尺寸
+     */
+    public static SelectTextMetrics system() {
+        return obtain(Resources.getSystem());
+    }
+
+    private static SelectTextMetrics obtain(Resources resources) {
+        synchronized (sCache) {
+            SelectTextMetrics metrics = sCache.get(resources);
+            if (null == metrics || !metrics.matches(resources)) {
+                metrics = new SelectTextMetrics(resources);
+                sCache.put(resources, metrics);
+            }
+            return metrics;
+        }
+    }
+
+    private SelectTextMetrics(Resources resources) {
+        DisplayMetrics displayMetrics = resources.getDisplayMetrics();
+        Configuration config = resources.getConfiguration();
+        mDensity = displayMetrics.density;
+        mWidthPixels = displayMetrics.widthPixels;
+        mHeightPixels = displayMetrics.heightPixels;
+        mScreenWidthDp = config.screenWidthDp;
+        mScreenHeightDp = config.screenHeightDp;
+        mOrientation = config.orientation;
+        mDensityDpi = displayMetrics.densityDpi;
+        mFontScale = config.fontScale;
+        for (int i = 0; i < DP_CACHE_SIZE; i++) {
+            mDpCache[i] = (int) (i * mDensity + 0.5f);
+        }
+    }
+
+    private boolean matches(Resources resources) {
+        Configuration config = resources.getConfiguration();
+        return mScreenWidthDp == config.screenWidthDp
+                && mScreenHeightDp == config.screenHeightDp
+                && mOrientation == config.orientation
+                && mFontScale == config.fontScale
+                && mDensityDpi == resources.getDisplayMetrics().densityDpi;
+    }
+
+    public int dp2px(float dpValue) {
+        int dp = (int) dpValue;
+        if (dp == dpValue && dp >= 0 && dp < DP_CACHE_SIZE) {
+            return mDpCache[dp];
+        }
+        return (int) (dpValue * mDensity + 0.5f);
+    }
+
+    public float getDensity() {
+        return mDensity;
+    }
+
+    public int getWidthPixels() {
+        return mWidthPixels;
+    }
+
+    public int getHeightPixels() {
+        return mHeightPixels;
+    }
+}
@@ -1,8 +1,6 @@
 package com.xiaoguang.selecttext;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
-import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -11,21 +9,30 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * 弹窗 适配器
  * hxg 2020.9.13 qq:929842234@qq.com
+ * <p>
+ * item 不可修改、id 稳定，通过 {@link #submitList(List)} 按差异刷新；
+ * 所有 item 共用一个点击监听。
  */
 public class SelectTextPopAdapter extends RecyclerView.Adapter<SelectTextPopAdapter.ViewHolder> {
 
     private Context mContext;
 
-    private List<Pair<Integer, String>> mList;
+    private List<SelectTextMenuItem> mList = Collections.emptyList();
     private boolean itemWrapContent;
 
+    /**
+     * 需要在显示之前调用，创建 item 时生效
+     */
     public void setItemWrapContent(boolean itemWrapContent) {
         this.itemWrapContent = itemWrapContent;
     }
@@ -37,44 +44,106 @@ public class SelectTextPopAdapter extends RecyclerView.Adapter<SelectTextPopAdap
     }
 
     public interface onClickItemListener {
-        void onClick(int position);
+        void onClick(SelectTextMenuItem item);
     }
 
-    public SelectTextPopAdapter(Context mContext, List<Pair<Integer, String>> list) {
+    private final View.OnClickListener mItemClickListener = v -> {
+        RecyclerView.ViewHolder holder = (RecyclerView.ViewHolder) v.getTag(R.id.select_text_pop_holder);
+        int position = null == holder ? RecyclerView.NO_POSITION : holder.getAdapterPosition();
+        if (position != RecyclerView.NO_POSITION && null != listener) {
+            listener.onClick(mList.get(position));
+        }
+    };
+
+    public SelectTextPopAdapter(Context mContext, List<SelectTextMenuItem> list) {
         this.mContext = mContext;
-        this.mList = list;
+        setHasStableIds(true);
+        if (null != list) {
+            mList = Collections.unmodifiableList(new ArrayList<>(list));
+        }
+    }
+
+    /**
+     * 当前显示的 item
+     */
+    public List<SelectTextMenuItem> getList() {
+        return mList;
+    }
+
+    /**
+     * 更新显示的 item，只刷新有差异的部分
+     * 和当前内容相同时不做任何事
+     */
+    public void submitList(List<SelectTextMenuItem> list) {
+        final List<SelectTextMenuItem> oldList = mList;
+        final List<SelectTextMenuItem> newList = null == list
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(list));
+        if (oldList.equals(newList)) {
+            return;
+        }
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldList.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return newList.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldList.get(oldItemPosition).getStableId() == newList.get(newItemPosition).getStableId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+                return oldList.get(oldItemPosition).equals(newList.get(newItemPosition));
+            }
+        }, false);
+        mList = newList;
+        result.dispatchUpdatesTo(this);
     }
 
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(mContext).inflate(R.layout.item_select_text_pop, parent, false);
-        return new ViewHolder(view);
-    }
-
-    @SuppressLint("SetTextI18n")
-    @Override
-    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        int drawableId = mList.get(position).first;
-        String text = mList.get(position).second;
+        ViewHolder holder = new ViewHolder(view);
         if (itemWrapContent) {
             ViewGroup.LayoutParams params = holder.tv_pop_func.getLayoutParams();
             params.width = ViewGroup.LayoutParams.WRAP_CONTENT;
             holder.tv_pop_func.setLayoutParams(params);
-            holder.tv_pop_func.setPadding(SelectTextHelper.dp2px(8), 0, SelectTextHelper.dp2px(8), 0);
+            int padding = SelectTextMetrics.obtain(mContext).dp2px(8);
+            holder.tv_pop_func.setPadding(padding, 0, padding, 0);
         }
+        holder.ll_pop_item.setTag(R.id.select_text_pop_holder, holder);
+        holder.ll_pop_item.setOnClickListener(mItemClickListener);
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        SelectTextMenuItem item = mList.get(position);
+        int drawableId = item.getDrawableId();
         if (drawableId != 0) {
             holder.iv_pop_icon.setBackgroundResource(drawableId);
         } else {
             holder.iv_pop_icon.setBackground(null);
         }
-        holder.tv_pop_func.setText(text);
-        holder.ll_pop_item.setOnClickListener(v -> listener.onClick(position));
+        holder.tv_pop_func.setText(item.getText());
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return mList.get(position).getStableId();
     }
 
     @Override
     public int getItemCount() {
-        return null == mList ? 0 : mList.size();
+        return mList.size();
     }
 
     class ViewHolder extends RecyclerView.ViewHolder {
@@ -89,4 +158,4 @@ public class SelectTextPopAdapter extends RecyclerView.Adapter<SelectTextPopAdap
             tv_pop_func = itemView.findViewById(R.id.tv_pop_func);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package com.xiaoguang.selecttext;
+
+import android.os.Build;
+import android.widget.TextView;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+/**
+ * 后台预计算文本
+ * <p>
+ * 在主线程取 textView 的排版参数，后台线程用 PrecomputedTextCompat 完成测量和字形计算，
+ * 回到主线程后交给 textView。同一个 textView 再次预计算时，之前的任务作废。
+ */
+final class SelectTextPrecompute {
+
+    private SelectTextPrecompute() {
+    }
+
+    interface OnPrecomputedListener {
+        void onPrecomputed(TextView textView, PrecomputedTextCompat text);
+    }
+
+    private static final class Task implements Runnable {
+        final TextView textView;
+        final CharSequence text;
+        final PrecomputedTextCompat.Params params;
+        final OnPrecomputedListener listener;
+        volatile boolean cancelled;
+
+        Task(TextView textView, CharSequence text, PrecomputedTextCompat.Params params,
+             OnPrecomputedListener listener) {
+            this.textView = textView;
+            this.text = text;
+            this.params = params;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            final PrecomputedTextCompat precomputed = PrecomputedTextCompat.create(text, params);
+            SelectTextBackground.post(() -> {
+                if (cancelled || textView.getTag(R.id.select_text_precompute_task) != this) {
+                    return;
+                }
+                textView.setTag(R.id.select_text_precompute_task, null);
+                listener.onPrecomputed(textView, precomputed);
+            });
+        }
+    }
+
+    /**
+     * 主线程调用
+     */
+    static void precompute(TextView textView, CharSequence text, OnPrecomputedListener listener) {
+        cancel(textView);
+        Task task = new Task(textView, text, TextViewCompat.getTextMetricsParams(textView), listener);
+        textView.setTag(R.id.select_text_precompute_task, task);
+        SelectTextBackground.executor().execute(task);
+    }
+
+    static void cancel(TextView textView) {
+        Object tag = textView.getTag(R.id.select_text_precompute_task);
+        if (tag instanceof Task) {
+            ((Task) tag).cancelled = true;
+            textView.setTag(R.id.select_text_precompute_task, null);
+        }
+    }
+
+    /**
+     * 把预计算的文本交给 textView
+     * API 29+ textView 直接使用 PrecomputedText，不会拷贝；
+     * 之前的版本 TextView 保存为不可修改的 SpannedString，只是预热了测量缓存，
+     * 选择时由 SelectTextHelper 画在 ViewOverlay 上，不会再 setText 丢掉预计算的结果。
+     * Android 4.3 以下没有 ViewOverlay，这里直接按 SPANNABLE 设置一次，选择时不用再转换。
+     * 预计算之后 textView 的字体、大小等改变了时，按普通文本在主线程重新测量
+     */
+    static void attach(TextView textView, PrecomputedTextCompat text) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            textView.setText(text, TextView.BufferType.SPANNABLE);
+            return;
+        }
+        try {
+            TextViewCompat.setPrecomputedText(textView, text);
+        } catch (IllegalArgumentException e) {
+            textView.setText(text, TextView.BufferType.SPANNABLE);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.xiaoguang.selecttext;
+
+import android.text.NoCopySpan;
+import android.text.SpanWatcher;
+import android.text.Spannable;
+import android.text.Spanned;
+import android.text.style.ClickableSpan;
+import android.widget.TextView;
+
+import java.util.Arrays;
+
+/**
+ * 文本里 ClickableSpan 的区间索引
+ * <p>
+ * 按开始位置排序，同时记录前缀最大结束位置，查询 offset 所在的链接只需二分查找，不分配内存。
+ * 索引作为 SpanWatcher 挂在文本上（NoCopySpan，复制文本时不带上），ClickableSpan 增删或移动后下一次查询时重建。
+ * 缓存在 TextView 的 tag 上，文本替换后 {@link #obtain(TextView, Spannable)} 自动重建。
+ */
+final class SelectTextSpanIndex implements SpanWatcher, NoCopySpan {
+
+    private static final ClickableSpan[] EMPTY_SPANS = new ClickableSpan[0];
+    private static final int[] EMPTY_INTS = new int[0];
+
+    private final Spannable mText;
+    private boolean mDirty = true;
+    private int mTextLength;
+
+    private ClickableSpan[] mSpans = EMPTY_SPANS;
+    private int[] mStarts = EMPTY_INTS;
+    private int[] mEnds = EMPTY_INTS;
+    private int[] mMaxEnds = EMPTY_INTS;// mMaxEnds[i] 是 mEnds[0..i] 的最大值
+
+    static SelectTextSpanIndex obtain(TextView textView, Spannable text) {
+        Object tag = textView.getTag(R.id.select_text_span_index);
+        if (tag instanceof SelectTextSpanIndex && ((SelectTextSpanIndex) tag).mText == text) {
+            return (SelectTextSpanIndex) tag;
+        }
+        if (tag instanceof SelectTextSpanIndex) {
+            ((SelectTextSpanIndex) tag).detach();
+        }
+        SelectTextSpanIndex index = new SelectTextSpanIndex(text);
+        textView.setTag(R.id.select_text_span_index, index);
+        return index;
+    }
+
+    private SelectTextSpanIndex(Spannable text) {
+        mText = text;
+        mText.setSpan(this, 0, text.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+    }
+
+    private void detach() {
+        mText.removeSpan(this);
+    }
+
+    /**
+     * offset 所在的链接下标，[start, end] 两端都算，和 getSpans(offset, offset) 一致
+     * 重叠时返回开始位置最靠后的（最内层）
+     *
+     * @return 没有时返回 -1
+     */
+    int indexOf(int offset) {
+        ensureIndex();
+        // 最后一个 start <= offset 的下标
+        int i = upperBound(mStarts, offset) - 1;
+        for (; i >= 0 && mMaxEnds[i] >= offset; i--) {
+            if (mEnds[i] >= offset) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    ClickableSpan getSpan(int index) {
+        return mSpans[index];
+    }
+
+    int getStart(int index) {
+        return mStarts[index];
+    }
+
+    int getEnd(int index) {
+        return mEnds[index];
+    }
+
+    private static int upperBound(int[] values, int value) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void ensureIndex() {
+        if (!mDirty && mTextLength == mText.length()) {
+            return;
+        }
+        mDirty = false;
+        mTextLength = mText.length();
+        ClickableSpan[] spans = mText.getSpans(0, mTextLength, ClickableSpan.class);
+        int count = spans.length;
+        // 高32位开始位置，低32位原下标，排序后不需要装箱
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) mText.getSpanStart(spans[i]) << 32) | i;
+        }
+        Arrays.sort(keys);
+        mSpans = new ClickableSpan[count];
+        mStarts = new int[count];
+        mEnds = new int[count];
+        mMaxEnds = new int[count];
+        int maxEnd = -1;
+        for (int i = 0; i < count; i++) {
+            ClickableSpan span = spans[(int) keys[i]];
+            mSpans[i] = span;
+            mStarts[i] = (int) (keys[i] >>> 32);
+            mEnds[i] = mText.getSpanEnd(span);
+            maxEnd = Math.max(maxEnd, mEnds[i]);
+            mMaxEnds[i] = maxEnd;
+        }
+    }
+
+    @Override
+    public void onSpanAdded(Spannable text, Object what, int start, int end) {
+        if (what instanceof ClickableSpan) {
+            mDirty = true;
+        }
+    }
+
+    @Override
+    public void onSpanRemoved(Spannable text, Object what, int start, int end) {
+        if (what instanceof ClickableSpan) {
+            mDirty = true;
+        }
+    }
+
+    @Override
+    public void onSpanChanged(Spannable text, Object what, int ostart, int oend, int nstart, int nend) {
+        if (what instanceof ClickableSpan) {
+            mDirty = true;
+        }
+    }
+}
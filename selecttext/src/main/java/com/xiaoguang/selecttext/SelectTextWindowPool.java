@@ -0,0 +1,179 @@
+package com.xiaoguang.selecttext;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Bundle;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.LayoutRes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 操作弹窗内容的缓存池
+ * <p>
+ * 按 Activity 和弹窗样式（布局、背景、箭头）缓存已经 inflate 好的 pop_operate，
+ * 样式相同的 SelectTextHelper 共用；Builder.build() 时在主线程空闲时预先 inflate 一个，
+ * 第一次长按就不用再 inflate。Activity 销毁时清空对应的缓存。
+ */
+final class SelectTextWindowPool {
+
+    private static final int MAX_POOL_SIZE = 2;// 每种样式最多缓存个数
+
+    private static final Map<Activity, Map<String, Entry>> sPool = new HashMap<>();
+    private static boolean sLifecycleRegistered;
+
+    private static class Entry {
+        final List<View> views = new ArrayList<>(MAX_POOL_SIZE);
+        boolean warming;
+    }
+
+    private SelectTextWindowPool() {
+    }
+
+    /**
+     * 空闲时预先 inflate 一个操作弹窗
+     * 已经有缓存或正在预热时不重复
+     */
+    static void prewarm(Context context, @LayoutRes int layoutRes, int popBgResource, int popArrowImg) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return;
+        }
+        final Activity activity = findActivity(context);
+        if (null == activity) {
+            return;
+        }
+        final Entry entry = getEntry(activity, layoutRes, popBgResource, popArrowImg);
+        if (!entry.views.isEmpty() || entry.warming) {
+            return;
+        }
+        entry.warming = true;
+        Looper.myQueue().addIdleHandler(() -> {
+            entry.warming = false;
+            if (!activity.isFinishing() && entry.views.isEmpty()
+                    && sPool.containsKey(activity)) {
+                entry.views.add(inflateOperateView(activity, layoutRes, popBgResource, popArrowImg));
+            }
+            return false;
+        });
+    }
+
+    /**
+     * 取一个操作弹窗内容，缓存里没有就马上 inflate
+     */
+    static View obtainOperateView(Context context, @LayoutRes int layoutRes, int popBgResource, int popArrowImg) {
+        Activity activity = findActivity(context);
+        if (null != activity) {
+            Entry entry = getEntry(activity, layoutRes, popBgResource, popArrowImg);
+            int size = entry.views.size();
+            if (size > 0) {
+                return entry.views.remove(size - 1);
+            }
+        }
+        return inflateOperateView(context, layoutRes, popBgResource, popArrowImg);
+    }
+
+    /**
+     * 归还操作弹窗内容，调用前弹窗要已经 dismiss
+     */
+    static void recycleOperateView(Context context, @LayoutRes int layoutRes, int popBgResource, int popArrowImg, View view) {
+        Activity activity = findActivity(context);
+        if (null == activity || activity.isFinishing()) {
+            return;
+        }
+        if (view.getParent() instanceof ViewGroup) {
+            ((ViewGroup) view.getParent()).removeView(view);
+        }
+        Entry entry = getEntry(activity, layoutRes, popBgResource, popArrowImg);
+        if (entry.views.size() < MAX_POOL_SIZE && !entry.views.contains(view)) {
+            entry.views.add(view);
+        }
+    }
+
+    private static View inflateOperateView(Context context, @LayoutRes int layoutRes, int popBgResource, int popArrowImg) {
+        View contentView = LayoutInflater.from(context).inflate(layoutRes, null);
+        if (0 != popBgResource) {
+            // pop_operate 是 rv_content，pop_operate_menu 是 menu_content
+            View menuView = contentView.findViewById(R.id.rv_content);
+            if (null == menuView) {
+                menuView = contentView.findViewById(R.id.menu_content);
+            }
+            menuView.setBackgroundResource(popBgResource);
+        }
+        if (0 != popArrowImg) {
+            contentView.findViewById(R.id.iv_arrow).setBackgroundResource(popArrowImg);
+        }
+        return contentView;
+    }
+
+    private static Entry getEntry(Activity activity, int layoutRes, int popBgResource, int popArrowImg) {
+        registerLifecycle(activity);
+        Map<String, Entry> entries = sPool.get(activity);
+        if (null == entries) {
+            entries = new HashMap<>();
+            sPool.put(activity, entries);
+        }
+        String key = layoutRes + ":" + popBgResource + ":" + popArrowImg;
+        Entry entry = entries.get(key);
+        if (null == entry) {
+            entry = new Entry();
+            entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    private static Activity findActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    private static void registerLifecycle(Activity activity) {
+        if (sLifecycleRegistered) {
+            return;
+        }
+        sLifecycleRegistered = true;
+        activity.getApplication().registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+                sPool.remove(activity);
+            }
+        });
+    }
+}
@@ -0,0 +1,182 @@
+package com.xiaoguang.selecttext;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 多次长按后，每帧回调的监听个数不变
+ * 通过 ViewTreeObserver、View 里保存监听的列表计数
+ * 宽度 MATCH_PARENT 和 wrap_content（demo 的气泡）各跑一遍，计数前先确认选区已经出现
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SelectTextHelperListenerTest {
+
+    private static final int LONG_PRESS_COUNT = 50;
+
+    private Activity mActivity;
+    private TextView mTextView;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+    }
+
+    private void createTextView(int width) {
+        FrameLayout root = new FrameLayout(mActivity);
+        mTextView = new TextView(mActivity);
+        mTextView.setMaxWidth(600);
+        mTextView.setText("Android 12 通过引入设计语言 Material You，用户可以完全个性化自己的手机。");
+        root.addView(mTextView, new FrameLayout.LayoutParams(width, ViewGroup.LayoutParams.WRAP_CONTENT));
+        mActivity.setContentView(root);
+        idle();
+    }
+
+    @Test
+    public void longPressManyTimes_callbackCountStaysConstant() {
+        createTextView(ViewGroup.LayoutParams.MATCH_PARENT);
+        longPressManyTimes();
+    }
+
+    @Test
+    public void longPressManyTimes_wrapContent_callbackCountStaysConstant() {
+        createTextView(ViewGroup.LayoutParams.WRAP_CONTENT);
+        longPressManyTimes();
+    }
+
+    private void longPressManyTimes() {
+        SelectTextHelper helper = new SelectTextHelper.Builder(mTextView)
+                .setMagnifierShow(false)
+                .addItem(0, android.R.string.copy, () -> {
+                })
+                .build();
+        ViewTreeObserver observer = mTextView.getViewTreeObserver();
+        int preDrawBefore = preDrawCount(observer);
+        int scrollBefore = scrollChangedCount(observer);
+        int attachBefore = attachStateCount(mTextView);
+
+        longPress();
+        assertSelected(helper);
+        int preDraw = preDrawCount(observer);
+        int scroll = scrollChangedCount(observer);
+        int attach = attachStateCount(mTextView);
+        // 第一次长按装上，绘制和滚动监听各一个
+        assertEquals(preDrawBefore + 1, preDraw);
+        assertEquals(scrollBefore + 1, scroll);
+        assertTrue(attach - attachBefore <= 1);
+
+        for (int i = 1; i < LONG_PRESS_COUNT; i++) {
+            longPress();
+            assertSelected(helper);
+        }
+        assertEquals(preDraw, preDrawCount(observer));
+        assertEquals(scroll, scrollChangedCount(observer));
+        assertEquals(attach, attachStateCount(mTextView));
+
+        // destroy 后全部移除
+        helper.destroy();
+        idle();
+        assertEquals(preDrawBefore, preDrawCount(observer));
+        assertEquals(scrollBefore, scrollChangedCount(observer));
+        assertEquals(attachBefore, attachStateCount(mTextView));
+    }
+
+    @Test
+    public void longPressAfterReset_doesNotAccumulate() {
+        createTextView(ViewGroup.LayoutParams.MATCH_PARENT);
+        longPressAfterReset();
+    }
+
+    @Test
+    public void longPressAfterReset_wrapContent_doesNotAccumulate() {
+        createTextView(ViewGroup.LayoutParams.WRAP_CONTENT);
+        longPressAfterReset();
+    }
+
+    private void longPressAfterReset() {
+        SelectTextHelper helper = new SelectTextHelper.Builder(mTextView)
+                .setMagnifierShow(false)
+                .addItem(0, android.R.string.copy, () -> {
+                })
+                .build();
+        ViewTreeObserver observer = mTextView.getViewTreeObserver();
+
+        longPress();
+        assertSelected(helper);
+        int preDraw = preDrawCount(observer);
+        int scroll = scrollChangedCount(observer);
+        int attach = attachStateCount(mTextView);
+        for (int i = 0; i < LONG_PRESS_COUNT; i++) {
+            helper.reset();
+            idle();
+            longPress();
+            assertSelected(helper);
+        }
+        assertEquals(preDraw, preDrawCount(observer));
+        assertEquals(scroll, scrollChangedCount(observer));
+        assertEquals(attach, attachStateCount(mTextView));
+        helper.destroy();
+    }
+
+    /**
+     * 长按后有选区和弹窗，否则什么监听都没装，计数不变也没有意义
+     */
+    private static void assertSelected(SelectTextHelper helper) {
+        assertNotNull(helper.getSelectionRange());
+        assertTrue(helper.isPopShowing());
+    }
+
+    private void longPress() {
+        mTextView.performLongClick();
+        idle();
+    }
+
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static int preDrawCount(ViewTreeObserver observer) {
+        return size(ReflectionHelpers.getField(observer, "mOnPreDrawListeners"));
+    }
+
+    private static int scrollChangedCount(ViewTreeObserver observer) {
+        return size(ReflectionHelpers.getField(observer, "mOnScrollChangedListeners"));
+    }
+
+    private static int attachStateCount(View view) {
+        Object listenerInfo = ReflectionHelpers.getField(view, "mListenerInfo");
+        if (null == listenerInfo) {
+            return 0;
+        }
+        return size(ReflectionHelpers.getField(listenerInfo, "mOnAttachStateChangeListeners"));
+    }
+
+    /**
+     * ViewTreeObserver.CopyOnWriteArray 和 CopyOnWriteArrayList 都有 size()
+     */
+    private static int size(Object listeners) {
+        if (null == listeners) {
+            return 0;
+        }
+        Integer size = ReflectionHelpers.callInstanceMethod(listeners, "size");
+        return size;
+    }
+}
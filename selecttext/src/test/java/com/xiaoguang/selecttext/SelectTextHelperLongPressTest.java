@@ -0,0 +1,121 @@
+package com.xiaoguang.selecttext;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.util.Pair;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 第一次长按新绑定的纯文本时马上出现选区、游标和弹窗
+ * 和 demo 的气泡一样是 wrap_content + maxWidth，重新 setText 会清空 Layout
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SelectTextHelperLongPressTest {
+
+    private static final String TEXT = "Android 12 通过引入设计语言 Material You，用户可以完全个性化自己的手机。";
+
+    private TextView createWrapContentTextView() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        FrameLayout root = new FrameLayout(activity);
+        TextView textView = new TextView(activity);
+        textView.setMaxWidth(600);
+        // 纯 String，不是 Spannable
+        textView.setText(TEXT);
+        root.addView(textView, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        activity.setContentView(root);
+        idle();
+        return textView;
+    }
+
+    private static SelectTextHelper build(TextView textView) {
+        return new SelectTextHelper.Builder(textView)
+                .setMagnifierShow(false)
+                .addItem(0, android.R.string.copy, () -> {
+                })
+                .build();
+    }
+
+    @Test
+    @Config(sdk = 28)
+    public void firstLongPress_wrapContent_showsSelection() {
+        TextView textView = createWrapContentTextView();
+        SelectTextHelper helper = build(textView);
+
+        textView.performLongClick();
+        // 不等下一帧，长按里就要有选区
+        Pair<Integer, Integer> range = helper.getSelectionRange();
+        assertNotNull(range);
+        assertEquals(0, (int) range.first);
+        assertEquals(TEXT.length(), (int) range.second);
+        assertTrue(helper.isPopShowing());
+        // 文本没有被替换
+        assertTrue(textView.getText() instanceof String);
+        helper.destroy();
+    }
+
+    /**
+     * API 28 上预计算的文本保存为 SpannedString，长按不能再 setText 丢掉预计算的结果
+     */
+    @Test
+    @Config(sdk = 28)
+    public void firstLongPress_precomputedText_keepsText() {
+        TextView textView = createWrapContentTextView();
+        SelectTextHelper helper = build(textView);
+        helper.setPrecomputedText(PrecomputedTextCompat.create(TEXT,
+                TextViewCompat.getTextMetricsParams(textView)));
+        idle();
+        CharSequence attached = textView.getText();
+
+        textView.performLongClick();
+        assertNotNull(helper.getSelectionRange());
+        assertTrue(helper.isPopShowing());
+        assertSame(attached, textView.getText());
+        helper.destroy();
+    }
+
+    /**
+     * 没有 ViewOverlay 时转换成 Spannable，等新的 Layout 后显示
+     */
+    @Test
+    @Config(sdk = 17)
+    public void firstLongPress_wrapContent_beforeOverlay_showsSelectionAfterLayout() {
+        TextView textView = createWrapContentTextView();
+        SelectTextHelper helper = build(textView);
+
+        textView.performLongClick();
+        idle();
+        Pair<Integer, Integer> range = helper.getSelectionRange();
+        assertNotNull(range);
+        assertEquals(0, (int) range.first);
+        assertEquals(TEXT.length(), (int) range.second);
+        assertTrue(helper.isPopShowing());
+        helper.destroy();
+    }
+
+    /**
+     * 执行消息并走完下一帧的布局、绘制
+     */
+    private static void idle() {
+        shadowOf(Looper.getMainLooper()).idleFor(100, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,73 @@
+package com.xiaoguang.selecttext;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.RelativeSizeSpan;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 一次取宽度累加出的横坐标和 Layout 逐个计算的一致
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SelectTextLayoutIndexTest {
+
+    private static final String LINE = "Android 12 通过引入设计语言 Material You，用户可以完全个性化自己的手机。😀 ";
+
+    private TextView layout(CharSequence text) {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        FrameLayout root = new FrameLayout(activity);
+        TextView textView = new TextView(activity);
+        textView.setText(text);
+        root.addView(textView, new FrameLayout.LayoutParams(400, ViewGroup.LayoutParams.WRAP_CONTENT));
+        activity.setContentView(root);
+        shadowOf(Looper.getMainLooper()).idle();
+        return textView;
+    }
+
+    private static void assertSameAsLayout(TextView textView) {
+        SelectTextLayoutIndex index = SelectTextLayoutIndex.obtain(textView);
+        assertNotNull(index);
+        Layout layout = textView.getLayout();
+        CharSequence text = textView.getText();
+        for (int offset = 0; offset <= text.length(); offset++) {
+            if (offset > 0 && offset < text.length() && Character.isLowSurrogate(text.charAt(offset))
+                    && Character.isHighSurrogate(text.charAt(offset - 1))) {
+                continue;
+            }
+            assertEquals("offset " + offset, layout.getPrimaryHorizontal(offset),
+                    index.getPrimaryHorizontal(offset), 1f);
+        }
+    }
+
+    @Test
+    public void plainText_matchesLayout() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            builder.append(LINE);
+        }
+        assertSameAsLayout(layout(builder.toString()));
+    }
+
+    @Test
+    public void metricAffectingSpan_matchesLayout() {
+        SpannableString text = new SpannableString(LINE + LINE + LINE);
+        text.setSpan(new RelativeSizeSpan(1.5f), 10, 30, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        assertSameAsLayout(layout(text));
+    }
+}
@@ -0,0 +1,63 @@
+package com.xiaoguang.selecttext;
+
+import android.app.Activity;
+import android.os.Looper;
+import android.text.Spanned;
+import android.text.style.URLSpan;
+import android.text.util.Linkify;
+import android.widget.TextView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 链接识别缓存按 hash 和长度命中，hash 相同的另一条文本不能用到别人的链接
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class SelectTextLinkifyTest {
+
+    @Test
+    public void sameHashAndLength_doesNotReuseOtherLinks() throws Exception {
+        // "Aa" 和 "BB" 的 hashCode 相同，替换后整个文本的 hash 和长度都不变
+        String first = "see www.Aa.com now";
+        String second = "see www.BB.com now";
+        assertEquals(first.hashCode(), second.hashCode());
+
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        TextView firstView = new TextView(activity);
+        firstView.setText(first);
+        linkify(firstView);
+        assertTrue(getUrl(firstView).contains("Aa"));
+
+        TextView secondView = new TextView(activity);
+        secondView.setText(second);
+        linkify(secondView);
+        assertTrue(getUrl(secondView).contains("BB"));
+    }
+
+    /**
+     * 识别并等后台线程和主线程都执行完
+     */
+    private static void linkify(TextView textView) throws Exception {
+        SelectTextLinkify.linkify(textView, Linkify.WEB_URLS, null);
+        SelectTextBackground.executor().submit(() -> {
+        }).get();
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    private static String getUrl(TextView textView) {
+        CharSequence text = textView.getText();
+        assertTrue(text instanceof Spanned);
+        URLSpan[] spans = ((Spanned) text).getSpans(0, text.length(), URLSpan.class);
+        assertEquals(1, spans.length);
+        return spans[0].getURL();
+    }
+}